@@ -4,7 +4,9 @@ import static com.google.android.apps.common.testing.ui.espresso.Espresso.onView
 import static com.google.android.apps.common.testing.ui.espresso.action.ViewActions.click;
 import static com.google.android.apps.common.testing.ui.espresso.action.ViewActions.typeText;
 import static com.google.android.apps.common.testing.ui.espresso.assertion.ViewAssertions.matches;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.RootMatchers.isDialog;
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isAssignableFrom;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isRoot;
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withId;
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withText;
 
@@ -204,6 +206,11 @@ public class EspressoEdgeCaseTest extends ActivityInstrumentationTestCase2<SendA
         .check(matches(withText("Doh")));
   }
 
+  public void testExistsInMissingRoot() {
+    assertFalse(onView(isRoot()).inRoot(isDialog()).exists());
+    assertTrue(onView(withId(R.id.enter_data_edit_text)).exists());
+  }
+
   public void testRecoveryFromAsyncTaskTimeout() throws Exception {
     IdlingPolicies.setMasterPolicyTimeout(2, TimeUnit.SECONDS);
     try {
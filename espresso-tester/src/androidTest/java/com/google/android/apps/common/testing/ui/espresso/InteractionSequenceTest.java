@@ -0,0 +1,144 @@
+package com.google.android.apps.common.testing.ui.espresso;
+
+import static com.google.android.apps.common.testing.ui.espresso.assertion.ViewAssertions.doesNotExist;
+import static com.google.android.apps.common.testing.ui.espresso.assertion.ViewAssertions.matches;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isEnabled;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withText;
+import static com.google.common.base.Throwables.propagate;
+import static org.hamcrest.Matchers.anything;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.google.android.apps.common.testing.ui.espresso.matcher.RootMatchers;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import android.test.AndroidTestCase;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import junit.framework.AssertionFailedError;
+
+import org.hamcrest.Matcher;
+import org.mockito.Mock;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Provider;
+
+/** Unit tests for {@link InteractionSequence}. */
+public class InteractionSequenceTest extends AndroidTestCase {
+  @Mock
+  private UiController mockUiController;
+
+  private ViewGroup rootView;
+  private InteractionSequence sequence;
+  private List<String> events;
+  private Matcher<View> failedMatcher;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    initMocks(this);
+    rootView = new FrameLayout(getContext());
+    TextView hello = new TextView(getContext());
+    hello.setText("hello");
+    TextView world = new TextView(getContext());
+    world.setText("world");
+    world.setEnabled(false);
+    rootView.addView(hello);
+    rootView.addView(world);
+    events = Lists.newArrayList();
+
+    sequence = new InteractionSequence(mockUiController, MoreExecutors.sameThreadExecutor(),
+        new FailureHandler() {
+          @Override
+          public void handle(Throwable error, Matcher<View> viewMatcher) {
+            failedMatcher = viewMatcher;
+            propagate(error);
+          }
+        },
+        new AtomicReference<Matcher<Root>>(RootMatchers.DEFAULT),
+        new Provider<View>() {
+          @Override
+          public View get() {
+            return rootView;
+          }
+        });
+  }
+
+  public void testStepsRunInOrder() {
+    sequence.perform(withText("hello"), new RecordingAction("first"), new RecordingAction("second"))
+        .check(withText("hello"), matches(isEnabled()))
+        .perform(withText("world"), new RecordingAction("third"))
+        .run();
+    assertEquals(Lists.newArrayList("first", "second", "third"), events);
+  }
+
+  public void testIdleSyncOnlyAfterActions() {
+    sequence.check(withText("hello"), matches(isEnabled()))
+        .check(withText("missing"), doesNotExist())
+        .perform(withText("hello"), new RecordingAction("action"))
+        .check(withText("world"), matches(withText("world")))
+        .check(withText("hello"), matches(isEnabled()))
+        .run();
+    // once before the first step, once after the action.
+    verify(mockUiController, times(2)).loopMainThreadUntilIdle();
+  }
+
+  public void testStopsAtFirstFailure() {
+    sequence.perform(withText("hello"), new RecordingAction("first"))
+        .check(withText("world"), matches(isEnabled()))
+        .perform(withText("hello"), new RecordingAction("never"));
+    try {
+      sequence.run();
+      fail("should throw");
+    } catch (AssertionFailedError expected) {
+    }
+    assertEquals(Lists.newArrayList("first"), events);
+    assertTrue(failedMatcher.toString(), failedMatcher.toString().startsWith("step 2 of 3: "));
+  }
+
+  public void testUnmetConstraintsFail() {
+    sequence.perform(withText("world"), new RecordingAction("disabled") {
+      @Override
+      public Matcher<View> getConstraints() {
+        return isEnabled();
+      }
+    });
+    try {
+      sequence.run();
+      fail("should throw");
+    } catch (PerformException expected) {
+    }
+    assertTrue(events.isEmpty());
+  }
+
+  private class RecordingAction implements ViewAction {
+    private final String name;
+
+    RecordingAction(String name) {
+      this.name = name;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Matcher<View> getConstraints() {
+      return anything();
+    }
+
+    @Override
+    public String getDescription() {
+      return name;
+    }
+
+    @Override
+    public void perform(UiController uiController, View view) {
+      events.add(name);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.google.android.apps.common.testing.ui.espresso;
+
+import com.google.android.apps.common.testing.ui.espresso.base.MainThreadExecutor;
+
+import android.test.InstrumentationTestCase;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Measures the round trip latency of an empty interaction: handing a no-op task to the main thread
+ * and waiting for it, with a FutureTask per round trip versus the reusable
+ * {@link MainThreadHandoff}.
+ */
+public class MainThreadHandoffBenchmark extends InstrumentationTestCase {
+  private static final String TAG = MainThreadHandoffBenchmark.class.getSimpleName();
+
+  private static final int ROUND_TRIPS = 10000;
+  private static final int WARM_UP = 1000;
+
+  private static final Runnable EMPTY = new Runnable() {
+    @Override
+    public void run() {
+    }
+  };
+
+  private Executor mainThreadExecutor;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    mainThreadExecutor = Espresso.espressoGraph().get(MainThreadExecutor.class);
+  }
+
+  public void testEmptyRoundTrip() throws Exception {
+    long[] futureTaskNanos = new long[ROUND_TRIPS];
+    long[] handoffNanos = new long[ROUND_TRIPS];
+    for (int i = -WARM_UP; i < ROUND_TRIPS; i++) {
+      long start = System.nanoTime();
+      FutureTask<Void> uiTask = new FutureTask<Void>(EMPTY, null);
+      mainThreadExecutor.execute(uiTask);
+      uiTask.get();
+      if (i >= 0) {
+        futureTaskNanos[i] = System.nanoTime() - start;
+      }
+    }
+    MainThreadHandoff handoff = MainThreadHandoff.forCurrentThread();
+    for (int i = -WARM_UP; i < ROUND_TRIPS; i++) {
+      long start = System.nanoTime();
+      assertNull(handoff.runAndWait(mainThreadExecutor, EMPTY));
+      if (i >= 0) {
+        handoffNanos[i] = System.nanoTime() - start;
+      }
+    }
+
+    Log.i(TAG, String.format("Empty round trip over %s iterations: FutureTask: %s, handoff: %s",
+        ROUND_TRIPS, describePercentiles(futureTaskNanos), describePercentiles(handoffNanos)));
+  }
+
+  private static String describePercentiles(long[] nanos) {
+    Arrays.sort(nanos);
+    return String.format("p50 %sus / p99 %sus", nanos[nanos.length / 2] / 1000,
+        nanos[nanos.length * 99 / 100] / 1000);
+  }
+}
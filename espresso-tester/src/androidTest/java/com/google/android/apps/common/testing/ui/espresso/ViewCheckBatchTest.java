@@ -0,0 +1,111 @@
+package com.google.android.apps.common.testing.ui.espresso;
+
+import static com.google.android.apps.common.testing.ui.espresso.assertion.ViewAssertions.doesNotExist;
+import static com.google.android.apps.common.testing.ui.espresso.assertion.ViewAssertions.matches;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isEnabled;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withText;
+import static com.google.common.base.Throwables.propagate;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.google.android.apps.common.testing.ui.espresso.matcher.RootMatchers;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import android.test.AndroidTestCase;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import junit.framework.AssertionFailedError;
+
+import org.hamcrest.Matcher;
+import org.mockito.Mock;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Provider;
+
+/** Unit tests for {@link ViewCheckBatch}. */
+public class ViewCheckBatchTest extends AndroidTestCase {
+  @Mock
+  private UiController mockUiController;
+
+  private ViewGroup rootView;
+  private ViewCheckBatch batch;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    initMocks(this);
+    rootView = new FrameLayout(getContext());
+    TextView hello = new TextView(getContext());
+    hello.setText("hello");
+    TextView world = new TextView(getContext());
+    world.setText("world");
+    world.setEnabled(false);
+    rootView.addView(hello);
+    rootView.addView(world);
+
+    batch = new ViewCheckBatch(mockUiController, MoreExecutors.sameThreadExecutor(),
+        new FailureHandler() {
+          @Override
+          public void handle(Throwable error, Matcher<View> viewMatcher) {
+            propagate(error);
+          }
+        },
+        new AtomicReference<Matcher<Root>>(RootMatchers.DEFAULT),
+        new Provider<View>() {
+          @Override
+          public View get() {
+            return rootView;
+          }
+        });
+  }
+
+  public void testAllChecksPass() {
+    batch.add(withText("hello"), matches(isEnabled()))
+        .add(withText("world"), matches(withText("world")))
+        .add(withText("missing"), doesNotExist())
+        .check();
+    verify(mockUiController, times(1)).loopMainThreadUntilIdle();
+  }
+
+  public void testOneCheckFails() {
+    batch.add(withText("hello"), matches(isEnabled()))
+        .add(withText("world"), matches(isEnabled()));
+    try {
+      batch.check();
+      fail("should throw");
+    } catch (AssertionFailedError expected) {
+    }
+  }
+
+  public void testFailuresAreAggregated() {
+    batch.add(withText("world"), matches(isEnabled()))
+        .add(withText("hello"), matches(isEnabled()))
+        .add(withText("missing"), matches(isEnabled()));
+    try {
+      batch.check();
+      fail("should throw");
+    } catch (ViewCheckBatchException expected) {
+      assertEquals(2, expected.getFailures().size());
+      assertTrue(expected.getFailures().get(0) instanceof AssertionFailedError);
+      assertTrue(expected.getFailures().get(1) instanceof NoMatchingViewException);
+      assertTrue(expected.getMessage(), expected.getMessage().startsWith("2 of 3 checks failed"));
+    }
+    verify(mockUiController, times(1)).loopMainThreadUntilIdle();
+  }
+
+  public void testAmbiguousMatchFails() {
+    batch.add(withText("hello"), doesNotExist())
+        .add(isEnabled(), matches(isEnabled()));
+    try {
+      batch.check();
+      fail("should throw");
+    } catch (ViewCheckBatchException expected) {
+      assertTrue(expected.getFailures().get(1) instanceof AmbiguousViewMatcherException);
+    }
+  }
+}
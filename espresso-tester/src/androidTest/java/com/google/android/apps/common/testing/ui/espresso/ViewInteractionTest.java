@@ -6,6 +6,8 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -14,18 +16,24 @@ import com.google.android.apps.common.testing.testrunner.ActivityLifecycleMonito
 import com.google.android.apps.common.testing.testrunner.ActivityLifecycleMonitorRegistry;
 import com.google.android.apps.common.testing.ui.espresso.matcher.RootMatchers;
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 
 import android.test.AndroidTestCase;
 import android.view.View;
+import android.widget.FrameLayout;
 
 import org.hamcrest.Matcher;
 import org.hamcrest.Matchers;
 import org.mockito.Mock;
 
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 
+import javax.inject.Provider;
+
 /** Unit tests for {@link ViewInteraction}. */
 public class ViewInteractionTest extends AndroidTestCase {
   @Mock
@@ -140,6 +148,21 @@ public class ViewInteractionTest extends AndroidTestCase {
 
   }
 
+  public void testPerformSeveralActions_reusesTargetWithinOneCall() {
+    FrameLayout layout = new FrameLayout(getContext());
+    layout.addView(targetView);
+    rootView = layout;
+    when(mockViewFinder.getView()).thenReturn(targetView);
+    initInteraction();
+    testInteraction.perform(mockAction, mockAction);
+    verify(mockViewFinder, times(1)).getView();
+    verify(mockAction, times(2)).perform(mockUiController, targetView);
+
+    // the next call looks the view up again, other views may have started matching meanwhile.
+    testInteraction.perform(mockAction);
+    verify(mockViewFinder, times(2)).getView();
+  }
+
   public void testPerformAndCheck() {
     when(mockViewFinder.getView()).thenReturn(targetView);
     initInteraction();
@@ -187,11 +210,92 @@ public class ViewInteractionTest extends AndroidTestCase {
     verify(mockAssertion).check(Optional.<View>absent(), Optional.of(noViewException));
   }
 
+  public void testPerformAsync_RunsWhenExecuted() throws Exception {
+    final List<Runnable> queued = Lists.newArrayList();
+    testExecutor = new Executor() {
+      @Override
+      public void execute(Runnable task) {
+        queued.add(task);
+      }
+    };
+    when(mockViewFinder.getView()).thenReturn(targetView);
+    initInteraction();
+    ListenableFuture<Void> performed = testInteraction.performAsync(mockAction, mockAction);
+    ListenableFuture<Void> checked = testInteraction.checkAsync(mockAssertion);
+    verify(mockAction, never()).perform(mockUiController, targetView);
+    assertEquals(2, queued.size());
+    assertFalse(performed.isDone());
+
+    queued.get(0).run();
+    verify(mockAction, times(2)).perform(mockUiController, targetView);
+    assertTrue(performed.isDone());
+    assertNull(performed.get());
+    assertFalse(checked.isDone());
+
+    queued.get(1).run();
+    verify(mockAssertion).check(Optional.of(targetView),
+        Optional.<NoMatchingViewException>absent());
+    assertNull(checked.get());
+  }
+
+  public void testCheckAsync_FailureReportedOnGet() throws Exception {
+    RuntimeException exceptionToRaise = new RuntimeException();
+    when(mockViewFinder.getView()).thenReturn(targetView);
+    doThrow(exceptionToRaise)
+      .when(mockAssertion)
+      .check(Optional.of(targetView), Optional.<NoMatchingViewException>absent());
+    initInteraction();
+    ListenableFuture<Void> checked = testInteraction.checkAsync(mockAssertion);
+    assertTrue(checked.isDone());
+    try {
+      checked.get();
+      fail("Should propagate exception stored in view operation!");
+    } catch (RuntimeException re) {
+      assertThat(exceptionToRaise, is(re));
+    }
+  }
+
+  public void testAtIndex_NegativeIndex() {
+    initInteraction();
+    try {
+      testInteraction.atIndex(-1);
+      fail("should throw");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testCheckOnSnapshot_RejectsLiveOnlyMatcher() {
+    initInteraction();
+    try {
+      testInteraction.checkOnSnapshot(mockAssertion);
+      fail("should throw");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testExists_noMatchingRoot() {
+    testInteraction = new ViewInteraction(mockUiController, mockViewFinder, testExecutor,
+        failureHandler, viewMatcher, rootMatcherRef, new Provider<View>() {
+          @Override
+          public View get() {
+            throw NoMatchingRootException.create(RootMatchers.isDialog(),
+                Lists.<Root>newArrayList());
+          }
+        });
+    assertFalse(testInteraction.exists());
+    assertEquals(0, testInteraction.count());
+  }
+
   private void initInteraction() {
     when(mockAction.getConstraints()).thenReturn(actionConstraint);
 
     testInteraction = new ViewInteraction(mockUiController, mockViewFinder, testExecutor,
-        failureHandler, viewMatcher, rootMatcherRef);
+        failureHandler, viewMatcher, rootMatcherRef, new Provider<View>() {
+          @Override
+          public View get() {
+            return rootView;
+          }
+        });
 
   }
 }
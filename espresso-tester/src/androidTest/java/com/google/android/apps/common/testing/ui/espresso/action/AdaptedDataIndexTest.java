@@ -0,0 +1,93 @@
+package com.google.android.apps.common.testing.ui.espresso.action;
+
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.android.apps.common.testing.ui.espresso.action.AdapterViewProtocol.AdaptedData;
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+
+import android.test.InstrumentationTestCase;
+import android.test.UiThreadTest;
+import android.widget.ArrayAdapter;
+
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+
+/**
+ * Unit tests for {@link AdaptedDataIndex}.
+ */
+public class AdaptedDataIndexTest extends InstrumentationTestCase {
+
+  private ArrayAdapter<Object> adapter;
+  private Matcher<Object> dataMatcher;
+  private AdaptedData data;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    adapter = new ArrayAdapter<Object>(getInstrumentation().getTargetContext(),
+        android.R.layout.simple_list_item_1, Lists.<Object>newArrayList("a", "b", "c"));
+    dataMatcher = equalTo((Object) "b");
+    data = new AdaptedData.Builder().withData("b").withOpaqueToken(1).build();
+  }
+
+  @UiThreadTest
+  public void testGet_sameMatcherInstance() {
+    AdaptedDataIndex.put(adapter, dataMatcher, Optional.<Integer>absent(),
+        AdapterViewProtocols.standardProtocol(), data);
+    assertSame(data, AdaptedDataIndex.get(adapter, dataMatcher, Optional.<Integer>absent(),
+        AdapterViewProtocols.standardProtocol()).get());
+    assertFalse(AdaptedDataIndex.get(adapter, dataMatcher, Optional.of(0),
+        AdapterViewProtocols.standardProtocol()).isPresent());
+  }
+
+  @UiThreadTest
+  public void testGet_equivalentMatcherFromAnotherLookup() {
+    AdaptedDataIndex.put(adapter, dataMatcher, Optional.<Integer>absent(),
+        AdapterViewProtocols.standardProtocol(), data);
+    assertSame(data, AdaptedDataIndex.get(adapter, equalTo((Object) "b"),
+        Optional.<Integer>absent(), AdapterViewProtocols.standardProtocol()).get());
+    assertFalse(AdaptedDataIndex.get(adapter, equalTo((Object) "c"), Optional.<Integer>absent(),
+        AdapterViewProtocols.standardProtocol()).isPresent());
+  }
+
+  @UiThreadTest
+  public void testGet_describedAlikeButNotMatching() {
+    AdaptedDataIndex.put(adapter, dataMatcher, Optional.<Integer>absent(),
+        AdapterViewProtocols.standardProtocol(), data);
+    // a matcher describing itself like the first one must not be handed data it rejects.
+    Matcher<Object> impostor = new BaseMatcher<Object>() {
+      @Override
+      public boolean matches(Object item) {
+        return false;
+      }
+
+      @Override
+      public void describeTo(Description description) {
+        dataMatcher.describeTo(description);
+      }
+    };
+    assertFalse(AdaptedDataIndex.get(adapter, impostor, Optional.<Integer>absent(),
+        AdapterViewProtocols.standardProtocol()).isPresent());
+  }
+
+  @UiThreadTest
+  public void testGet_invalidatedByDataSetChange() {
+    AdaptedDataIndex.put(adapter, dataMatcher, Optional.<Integer>absent(),
+        AdapterViewProtocols.standardProtocol(), data);
+    adapter.notifyDataSetChanged();
+    assertFalse(AdaptedDataIndex.get(adapter, dataMatcher, Optional.<Integer>absent(),
+        AdapterViewProtocols.standardProtocol()).isPresent());
+  }
+
+  @UiThreadTest
+  public void testGet_invalidatedBySilentCountChange() {
+    AdaptedDataIndex.put(adapter, dataMatcher, Optional.<Integer>absent(),
+        AdapterViewProtocols.standardProtocol(), data);
+    adapter.setNotifyOnChange(false);
+    adapter.insert("z", 0);
+    assertFalse(AdaptedDataIndex.get(adapter, dataMatcher, Optional.<Integer>absent(),
+        AdapterViewProtocols.standardProtocol()).isPresent());
+  }
+}
@@ -4,7 +4,10 @@ import static com.google.android.apps.common.testing.ui.espresso.Espresso.onData
 import static com.google.android.apps.common.testing.ui.espresso.Espresso.onView;
 import static com.google.android.apps.common.testing.ui.espresso.action.ViewActions.click;
 import static com.google.android.apps.common.testing.ui.espresso.assertion.ViewAssertions.matches;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ThreadSafeMatchers.threadSafe;
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.hasSibling;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isAssignableFrom;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isDisplayed;
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withId;
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withText;
 import static org.hamcrest.Matchers.allOf;
@@ -12,11 +15,19 @@ import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 
+import com.google.android.apps.common.testing.ui.espresso.DataInteraction;
+import com.google.android.apps.common.testing.ui.espresso.PerformException;
+import com.google.android.apps.common.testing.ui.espresso.UiController;
+import com.google.android.apps.common.testing.ui.espresso.ViewAction;
 import com.google.android.apps.common.testing.ui.espresso.tester.LongListActivity;
 import com.google.android.apps.common.testing.ui.espresso.tester.R;
 
 import android.test.ActivityInstrumentationTestCase2;
 import android.test.suitebuilder.annotation.LargeTest;
+import android.view.View;
+import android.widget.ListView;
+
+import org.hamcrest.Matcher;
 
 import java.util.Map;
 
@@ -67,6 +78,93 @@ public class AdapterDataIntegrationTest extends ActivityInstrumentationTestCase2
         .check(matches(withText("50")));
   }
 
+  @SuppressWarnings("unchecked")
+  public void testJumpingProtocol() {
+    onData(allOf(is(instanceOf(Map.class)), hasEntry(is(LongListActivity.STR), is("item: 99"))))
+        .usingAdapterViewProtocol(AdapterViewProtocols.jumpingProtocol())
+        .perform(click());
+    onView(withId(R.id.selection_row_value))
+        .check(matches(withText("99")));
+
+    onData(allOf(is(instanceOf(Map.class)), hasEntry(is(LongListActivity.STR), is("item: 1"))))
+        .usingAdapterViewProtocol(AdapterViewProtocols.jumpingProtocol())
+        .perform(click());
+    onView(withId(R.id.selection_row_value))
+        .check(matches(withText("1")));
+  }
+
+  @SuppressWarnings("unchecked")
+  public void testReusedDataInteraction() {
+    DataInteraction row = onData(
+        allOf(is(instanceOf(Map.class)), hasEntry(is(LongListActivity.STR), is("item: 99"))));
+    row.perform(click());
+    row.check(matches(isDisplayed()));
+    onView(withId(R.id.selection_row_value))
+        .check(matches(withText("99")));
+
+    // scrolling the row out of view makes the next operation load it again.
+    onData(allOf(is(instanceOf(Map.class)), hasEntry(is(LongListActivity.STR), is("item: 1"))))
+        .perform(click());
+    row.perform(click());
+    onView(withId(R.id.selection_row_value))
+        .check(matches(withText("99")));
+  }
+
+  @SuppressWarnings("unchecked")
+  public void testReusedDataInteraction_rowPartlyScrolledOff() {
+    DataInteraction row = onData(
+        allOf(is(instanceOf(Map.class)), hasEntry(is(LongListActivity.STR), is("item: 50"))));
+    row.perform(click());
+    onData(allOf(is(instanceOf(Map.class)), hasEntry(is(LongListActivity.STR), is("item: 51"))))
+        .perform(click());
+
+    // the remembered row stays attached and keeps rendering the data, but half out of sight.
+    onView(withId(R.id.list)).perform(new ViewAction() {
+      @Override
+      public Matcher<View> getConstraints() {
+        return isAssignableFrom(ListView.class);
+      }
+
+      @Override
+      public void perform(UiController uiController, View view) {
+        ListView list = (ListView) view;
+        // all rows share one layout.
+        int rowHeight = list.getChildAt(0).getHeight();
+        list.setSelectionFromTop(50, -rowHeight / 2);
+        uiController.loopMainThreadUntilIdle();
+      }
+
+      @Override
+      public String getDescription() {
+        return "scroll item 50 half out of sight";
+      }
+    });
+    row.perform(click());
+    onView(withId(R.id.selection_row_value))
+        .check(matches(withText("50")));
+  }
+
+  @SuppressWarnings("unchecked")
+  public void testThreadSafeDataMatcher() {
+    onData(threadSafe(allOf(is(instanceOf(Map.class)))))
+        .atPosition(20)
+        .perform(click());
+    onView(withId(R.id.selection_row_value))
+        .check(matches(withText("20")));
+  }
+
+  @SuppressWarnings("unchecked")
+  public void testMissingData_listsSampleOfValues() {
+    try {
+      onData(allOf(is(instanceOf(Map.class)), hasEntry(is(LongListActivity.STR), is("nope"))))
+          .perform(click());
+      fail("should throw");
+    } catch (PerformException expected) {
+      String message = expected.getCause().getMessage();
+      assertTrue(message, message.contains("(first 20 of 100 values)"));
+    }
+  }
+
   @SuppressWarnings("unchecked")
   public void testSelectItemWithSibling() {
     onView(allOf(withText("7"), hasSibling(withText("item: 0"))))
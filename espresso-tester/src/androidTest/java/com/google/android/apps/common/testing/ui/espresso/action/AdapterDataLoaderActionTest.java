@@ -0,0 +1,69 @@
+package com.google.android.apps.common.testing.ui.espresso.action;
+
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ThreadSafeMatchers.threadSafe;
+
+import com.google.common.base.Optional;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.test.InstrumentationTestCase;
+import android.test.UiThreadTest;
+import android.widget.ListView;
+import android.widget.SimpleCursorAdapter;
+
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+
+/**
+ * Unit tests for {@link AdapterDataLoaderAction}.
+ */
+public class AdapterDataLoaderActionTest extends InstrumentationTestCase {
+
+  // more rows than are matched serially.
+  private static final int ROWS = 5000;
+
+  private ListView listView;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    listView = new ListView(getInstrumentation().getTargetContext());
+  }
+
+  @SuppressWarnings("deprecation")
+  private SimpleCursorAdapter cursorAdapter(int rows) {
+    MatrixCursor cursor = new MatrixCursor(new String[] {"_id", "name"});
+    for (int i = 0; i < rows; i++) {
+      cursor.addRow(new Object[] {i, "item: " + i});
+    }
+    // the flagless constructor is the only one available on froyo.
+    return new SimpleCursorAdapter(getInstrumentation().getTargetContext(),
+        android.R.layout.simple_list_item_1, cursor, new String[] {"name"},
+        new int[] {android.R.id.text1});
+  }
+
+  @UiThreadTest
+  public void testThreadSafeMatcherOverCursorAdapter_findsTheRightRow() {
+    listView.setAdapter(cursorAdapter(ROWS));
+    AdapterDataLoaderAction action = new AdapterDataLoaderAction(
+        threadSafe(cursorWithName("item: 4321")), Optional.<Integer>absent(),
+        AdapterViewProtocols.standardProtocol());
+    action.selectAdaptedData(listView);
+    assertEquals(4321, action.getAdaptedData().opaqueToken);
+  }
+
+  private static Matcher<Object> cursorWithName(final String name) {
+    return new BaseMatcher<Object>() {
+      @Override
+      public boolean matches(Object item) {
+        return item instanceof Cursor && name.equals(((Cursor) item).getString(1));
+      }
+
+      @Override
+      public void describeTo(Description description) {
+        description.appendText("cursor with name: " + name);
+      }
+    };
+  }
+}
@@ -0,0 +1,101 @@
+package com.google.android.apps.common.testing.ui.espresso.action;
+
+import static org.hamcrest.Matchers.endsWith;
+
+import com.google.android.apps.common.testing.ui.espresso.action.AdapterViewProtocol.AdaptedData;
+import com.google.common.collect.Lists;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.test.InstrumentationTestCase;
+import android.test.UiThreadTest;
+import android.view.View;
+import android.widget.ArrayAdapter;
+import android.widget.ListView;
+import android.widget.SimpleCursorAdapter;
+
+import java.util.List;
+
+/**
+ * Unit tests for {@link AdapterViewProtocols}.
+ */
+public class AdapterViewProtocolsTest extends InstrumentationTestCase {
+
+  private ListView listView;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    listView = new ListView(getInstrumentation().getTargetContext());
+  }
+
+  @SuppressWarnings("deprecation")
+  private SimpleCursorAdapter cursorAdapter(int rows) {
+    MatrixCursor cursor = new MatrixCursor(new String[] {"_id", "name"});
+    for (int i = 0; i < rows; i++) {
+      cursor.addRow(new Object[] {i, "item: " + i});
+    }
+    // the flagless constructor is the only one available on froyo.
+    return new SimpleCursorAdapter(getInstrumentation().getTargetContext(),
+        android.R.layout.simple_list_item_1, cursor, new String[] {"name"},
+        new int[] {android.R.id.text1});
+  }
+
+  @UiThreadTest
+  public void testCursorProtocol_offersMatchingRows() {
+    listView.setAdapter(cursorAdapter(100));
+    List<Object> tokens = Lists.newArrayList();
+    for (AdaptedData data : AdapterViewProtocols.cursorProtocol("name", endsWith("7"))
+        .getDataInAdapterView(listView)) {
+      assertTrue(data.data instanceof Cursor);
+      tokens.add(data.opaqueToken);
+    }
+    assertEquals(Lists.<Object>newArrayList(7, 17, 27, 37, 47, 57, 67, 77, 87, 97), tokens);
+  }
+
+  @UiThreadTest
+  public void testCursorProtocol_scanRestoresCursorPosition() {
+    SimpleCursorAdapter adapter = cursorAdapter(100);
+    listView.setAdapter(adapter);
+    Cursor cursor = adapter.getCursor();
+    cursor.moveToPosition(3);
+    assertFalse(AdapterViewProtocols.cursorProtocol("name", endsWith("x"))
+        .getDataInAdapterView(listView).iterator().hasNext());
+    assertEquals(3, cursor.getPosition());
+
+    // a candidate is handed out as the adapter's item, i.e. the cursor moved onto its row.
+    AdaptedData data = AdapterViewProtocols.cursorProtocol("name", endsWith("42"))
+        .getDataInAdapterView(listView).iterator().next();
+    assertEquals("item: 42", ((Cursor) data.data).getString(1));
+  }
+
+  @UiThreadTest
+  public void testCursorProtocol_positionsCountHeaders() {
+    listView.addHeaderView(new View(getInstrumentation().getTargetContext()));
+    listView.setAdapter(cursorAdapter(10));
+    AdaptedData data = AdapterViewProtocols.cursorProtocol("name", endsWith("3"))
+        .getDataInAdapterView(listView).iterator().next();
+    assertEquals(4, data.opaqueToken);
+  }
+
+  @UiThreadTest
+  public void testCursorProtocol_rejectsOtherAdapters() {
+    listView.setAdapter(new ArrayAdapter<String>(getInstrumentation().getTargetContext(),
+        android.R.layout.simple_list_item_1, Lists.newArrayList("a")));
+    try {
+      AdapterViewProtocols.cursorProtocol("name", endsWith("a")).getDataInAdapterView(listView);
+      fail("should throw");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @UiThreadTest
+  public void testCursorProtocol_rejectsUnknownColumn() {
+    listView.setAdapter(cursorAdapter(1));
+    try {
+      AdapterViewProtocols.cursorProtocol("nope", endsWith("a")).getDataInAdapterView(listView);
+      fail("should throw");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
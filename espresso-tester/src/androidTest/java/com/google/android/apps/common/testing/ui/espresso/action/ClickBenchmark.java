@@ -0,0 +1,94 @@
+package com.google.android.apps.common.testing.ui.espresso.action;
+
+import static com.google.android.apps.common.testing.ui.espresso.Espresso.onView;
+import static com.google.android.apps.common.testing.ui.espresso.action.ViewActions.click;
+import static com.google.android.apps.common.testing.ui.espresso.assertion.ViewAssertions.matches;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isDisplayingAtLeast;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withId;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withText;
+
+import com.google.android.apps.common.testing.ui.espresso.UiController;
+import com.google.android.apps.common.testing.ui.espresso.ViewAction;
+import com.google.android.apps.common.testing.ui.espresso.tester.R;
+import com.google.android.apps.common.testing.ui.espresso.tester.SimpleActivity;
+
+import android.os.SystemClock;
+import android.test.ActivityInstrumentationTestCase2;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+import org.hamcrest.Matcher;
+
+/**
+ * Measures clicking a button and checking its effect, with the fixed pressed state wait every tap
+ * used to be followed by and with the click action as it is.
+ */
+@LargeTest
+public class ClickBenchmark extends ActivityInstrumentationTestCase2<SimpleActivity> {
+  private static final String TAG = ClickBenchmark.class.getSimpleName();
+
+  private static final int CLICKS = 1000;
+
+  @SuppressWarnings("deprecation")
+  public ClickBenchmark() {
+    // Supporting froyo.
+    super("com.google.android.apps.common.testing.ui.testapp", SimpleActivity.class);
+  }
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    getActivity();
+  }
+
+  public void testClicks() {
+    // warm up, so the first measurement does not pay for class loading.
+    clickButton(click());
+
+    long start = SystemClock.elapsedRealtime();
+    for (int i = 0; i < CLICKS; i++) {
+      clickButton(fixedDelayClick());
+    }
+    long fixedDelayMillis = SystemClock.elapsedRealtime() - start;
+
+    start = SystemClock.elapsedRealtime();
+    for (int i = 0; i < CLICKS; i++) {
+      clickButton(click());
+    }
+    long signalledMillis = SystemClock.elapsedRealtime() - start;
+
+    Log.i(TAG, String.format("%s clicks: fixed delay: %sms, completion signals: %sms",
+        CLICKS, fixedDelayMillis, signalledMillis));
+  }
+
+  private void clickButton(ViewAction clickAction) {
+    onView(withId(R.id.button_simple))
+        .perform(clickAction);
+    onView(withId(R.id.text_simple))
+        .check(matches(withText("Hello Espresso!")));
+  }
+
+  /** Taps like a click did before completion signals: always waiting out the pressed state. */
+  private static ViewAction fixedDelayClick() {
+    return new ViewAction() {
+      @Override
+      public Matcher<View> getConstraints() {
+        return isDisplayingAtLeast(90);
+      }
+
+      @Override
+      public void perform(UiController uiController, View view) {
+        assertEquals(Tapper.Status.SUCCESS, Tap.SINGLE.sendTap(uiController,
+            GeneralLocation.CENTER.calculateCoordinates(view), Press.FINGER.describePrecision()));
+        uiController.loopMainThreadForAtLeast(ViewConfiguration.getPressedStateDuration());
+      }
+
+      @Override
+      public String getDescription() {
+        return "fixed delay click";
+      }
+    };
+  }
+}
@@ -0,0 +1,62 @@
+package com.google.android.apps.common.testing.ui.espresso.action;
+
+import com.google.android.apps.common.testing.ui.espresso.UiController;
+
+import android.os.SystemClock;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link GestureScheduler}.
+ */
+public class GestureSchedulerTest extends TestCase {
+
+  private int waitCount;
+
+  private final UiController sleepingController = new UiController() {
+    @Override
+    public boolean injectMotionEvent(MotionEvent event) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean injectKeyEvent(KeyEvent event) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean injectString(String str) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void loopMainThreadUntilIdle() {}
+
+    @Override
+    public void loopMainThreadForAtLeast(long millisDelay) {
+      waitCount++;
+      SystemClock.sleep(millisDelay);
+    }
+  };
+
+  public void testAwaitTime_waitsOnceForDeadline() {
+    GestureScheduler scheduler = new GestureScheduler(sleepingController);
+    long eventTime = scheduler.timeAt(50);
+    assertEquals(scheduler.getStartTime() + 50, eventTime);
+    scheduler.awaitTime(eventTime);
+    assertTrue(SystemClock.uptimeMillis() >= eventTime);
+    assertEquals(1, waitCount);
+    assertEquals(1, scheduler.getDeliveredCount());
+  }
+
+  public void testAwaitTime_pastDeadlineReportsLateness() {
+    GestureScheduler scheduler =
+        new GestureScheduler(sleepingController, SystemClock.uptimeMillis() - 100);
+    long lateness = scheduler.awaitTime(scheduler.timeAt(10));
+    assertEquals(0, waitCount);
+    assertTrue(lateness >= 90);
+    assertEquals(lateness, scheduler.getMaxLatenessMillis());
+  }
+}
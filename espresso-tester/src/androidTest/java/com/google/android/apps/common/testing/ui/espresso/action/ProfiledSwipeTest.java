@@ -0,0 +1,154 @@
+package com.google.android.apps.common.testing.ui.espresso.action;
+
+import com.google.android.apps.common.testing.ui.espresso.UiController;
+import com.google.android.apps.common.testing.ui.espresso.action.ProfiledSwipe.Easing;
+
+import android.os.SystemClock;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link ProfiledSwipe}.
+ */
+public class ProfiledSwipeTest extends TestCase {
+
+  // Swipe.FAST and Swipe.SLOW used to inject this many move events each, one per step.
+  private static final int FORMER_SWIPE_MOVE_EVENTS = 9;
+
+  private int moveEvents;
+  private int totalSamples;
+
+  private final UiController countingController = new UiController() {
+    @Override
+    public boolean injectMotionEvent(MotionEvent event) {
+      if (event.getActionMasked() == MotionEvent.ACTION_MOVE) {
+        moveEvents++;
+        totalSamples += event.getHistorySize() + 1;
+      }
+      return true;
+    }
+
+    @Override
+    public boolean injectKeyEvent(KeyEvent event) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean injectString(String str) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void loopMainThreadUntilIdle() {}
+
+    @Override
+    public void loopMainThreadForAtLeast(long millisDelay) {
+      SystemClock.sleep(millisDelay);
+    }
+  };
+
+  public void testEasings_startAtStartAndEndAtEnd() {
+    for (Easing easing : Easing.values()) {
+      assertEquals(easing.toString(), 0f, easing.interpolate(0f), 0.0001f);
+      assertEquals(easing.toString(), 1f, easing.interpolate(1f), 0.0001f);
+    }
+  }
+
+  public void testEasings_neverMoveBackwards() {
+    for (Easing easing : Easing.values()) {
+      float previous = 0f;
+      for (int i = 1; i <= 100; i++) {
+        float progress = easing.interpolate(i / 100f);
+        assertTrue(easing + " at " + i, progress >= previous);
+        previous = progress;
+      }
+    }
+  }
+
+  public void testFlingAtVelocity_rejectsNonPositiveVelocity() {
+    try {
+      ProfiledSwipe.flingAtVelocity(0);
+      fail("should throw");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testFlingAtVelocity_trackedAtRequestedVelocity() {
+    assertTrackedVelocity(20000f, 500f);
+    assertTrackedVelocity(3000f, 600f);
+  }
+
+  public void testFlingAtVelocity_rejectsDistanceTooShortForVelocity() {
+    try {
+      ProfiledSwipe.flingAtVelocity(20000f).plan(new float[] {0, 0}, new float[] {100, 0});
+      fail("should throw");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testFlingAtVelocity_neverPassesEnd() {
+    ProfiledSwipe.Path path =
+        ProfiledSwipe.flingAtVelocity(7000f).plan(new float[] {0, 0}, new float[] {0, 333});
+    assertTrue(path.points[path.points.length - 1][1] <= 333f);
+  }
+
+  public void testSlowSwipe_injectsAtMostMaxMoveEvents() {
+    ProfiledSwipe.Path path = ProfiledSwipe.withDuration(1500, Easing.LINEAR)
+        .plan(new float[] {0, 0}, new float[] {0, 1000});
+    int samplesPerEvent = ProfiledSwipe.samplesPerEvent(path.points.length);
+    int moveEvents = (path.points.length + samplesPerEvent - 1) / samplesPerEvent;
+    assertTrue("move events: " + moveEvents, moveEvents <= ProfiledSwipe.MAX_MOVE_EVENTS);
+    assertEquals(1500, path.offsetMillis[path.offsetMillis.length - 1]);
+  }
+
+  public void testSwipes_injectFewerMoveEventsThanBefore() {
+    for (Swipe swipe : Swipe.values()) {
+      moveEvents = 0;
+      totalSamples = 0;
+      assertEquals(Swiper.Status.SUCCESS, swipe.sendSwipe(countingController,
+          new float[] {0, 0}, new float[] {0, 1200}, new float[] {1, 1}));
+      assertTrue(swipe + " moves: " + moveEvents, moveEvents < FORMER_SWIPE_MOVE_EVENTS);
+      assertTrue(swipe + " moves: " + moveEvents, moveEvents <= ProfiledSwipe.MAX_MOVE_EVENTS);
+      // the samples themselves are all delivered, as history.
+      assertTrue(swipe + " samples: " + totalSamples, totalSamples > moveEvents);
+    }
+  }
+
+  public void testShortSwipe_oneMoveEventPerFrame() {
+    ProfiledSwipe.Path path = ProfiledSwipe.withDuration(32, Easing.LINEAR)
+        .plan(new float[] {0, 0}, new float[] {0, 100});
+    assertEquals(ProfiledSwipe.FRAME_MS / ProfiledSwipe.SAMPLE_INTERVAL_MS,
+        ProfiledSwipe.samplesPerEvent(path.points.length));
+  }
+
+  private static void assertTrackedVelocity(float velocity, float distance) {
+    ProfiledSwipe.Path path =
+        ProfiledSwipe.flingAtVelocity(velocity).plan(new float[] {0, 0}, new float[] {distance, 0});
+    long downTime = 1000;
+    VelocityTracker tracker = VelocityTracker.obtain();
+    MotionEvent down = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, 0, 0, 0);
+    tracker.addMovement(down);
+    down.recycle();
+    int sampleCount = path.points.length;
+    int samplesPerEvent = ProfiledSwipe.samplesPerEvent(sampleCount);
+    for (int first = 0; first < sampleCount; first += samplesPerEvent) {
+      int count = Math.min(samplesPerEvent, sampleCount - first);
+      float[][] points = new float[count][];
+      long[] eventTimes = new long[count];
+      for (int i = 0; i < count; i++) {
+        points[i] = path.points[first + i];
+        eventTimes[i] = downTime + path.offsetMillis[first + i];
+      }
+      MotionEvent move = MotionEvents.obtainMovementBatch(downTime, points, eventTimes);
+      tracker.addMovement(move);
+      move.recycle();
+    }
+    tracker.computeCurrentVelocity(1000);
+    assertEquals(velocity, tracker.getXVelocity(), velocity * 0.02f);
+    assertEquals(0f, tracker.getYVelocity(), 1f);
+    tracker.recycle();
+  }
+}
@@ -10,6 +10,7 @@ import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMat
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withText;
 import static org.hamcrest.Matchers.allOf;
 
+import com.google.android.apps.common.testing.ui.espresso.ViewAction;
 import com.google.android.apps.common.testing.ui.espresso.tester.R;
 import com.google.android.apps.common.testing.ui.espresso.tester.SwipeActivity;
 
@@ -48,6 +49,21 @@ public class SwipeActionIntegrationTest extends ActivityInstrumentationTestCase2
       .check(matches(hasDescendant(withText("Position #0"))));
   }
 
+  /** Tests that a fling synthesized at a given velocity pages like a swipe does. */
+  public void testFlingAtVelocity() {
+    ViewAction flingLeft = new GeneralSwipeAction(ProfiledSwipe.flingAtVelocity(2000),
+        GeneralLocation.CENTER_RIGHT, GeneralLocation.CENTER_LEFT, Press.FINGER);
+    ViewAction acceleratingSwipeRight = new GeneralSwipeAction(
+        ProfiledSwipe.withDuration(300, ProfiledSwipe.Easing.ACCELERATE),
+        GeneralLocation.CENTER_LEFT, GeneralLocation.CENTER_RIGHT, Press.FINGER);
+    onView(withId(R.id.small_pager))
+      .check(matches(hasDescendant(withText("Position #0"))))
+      .perform(flingLeft)
+      .check(matches(hasDescendant(withText("Position #1"))))
+      .perform(acceleratingSwipeRight)
+      .check(matches(hasDescendant(withText("Position #0"))));
+  }
+
   /** Tests that trying to swipe beyond the start of a view pager has no effect. */
   public void testSwipingRightHasNoEffectWhenAtStart() {
     onView(withId(R.id.small_pager))
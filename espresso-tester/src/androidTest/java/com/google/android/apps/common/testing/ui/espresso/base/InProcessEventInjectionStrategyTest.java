@@ -0,0 +1,137 @@
+package com.google.android.apps.common.testing.ui.espresso.base;
+
+import com.google.android.apps.common.testing.ui.espresso.tester.R;
+import com.google.android.apps.common.testing.ui.espresso.tester.SimpleActivity;
+import com.google.common.collect.Lists;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.test.ActivityInstrumentationTestCase2;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.PopupWindow;
+import android.widget.TextView;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link InProcessEventInjectionStrategy}.
+ */
+@LargeTest
+public class InProcessEventInjectionStrategyTest
+    extends ActivityInstrumentationTestCase2<SimpleActivity> {
+
+  private final List<Integer> platformActions =
+      Collections.synchronizedList(Lists.<Integer>newArrayList());
+  private InProcessEventInjectionStrategy strategy;
+
+  @SuppressWarnings("deprecation")
+  public InProcessEventInjectionStrategyTest() {
+    // Supporting froyo.
+    super("com.google.android.apps.common.testing.ui.testapp", SimpleActivity.class);
+  }
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    getActivity();
+    getInstrumentation().waitForIdleSync();
+    EventInjectionStrategy recordingPlatform = new EventInjectionStrategy() {
+      @Override
+      public boolean injectKeyEvent(KeyEvent keyEvent) {
+        platformActions.add(keyEvent.getAction());
+        return true;
+      }
+
+      @Override
+      public boolean injectMotionEvent(MotionEvent motionEvent) {
+        platformActions.add(motionEvent.getAction());
+        return true;
+      }
+    };
+    strategy = new InProcessEventInjectionStrategy(recordingPlatform,
+        new RootsOracle(Looper.getMainLooper()), Looper.getMainLooper());
+  }
+
+  public void testDisabled_usesPlatform() throws Exception {
+    float[] center = centerOf(R.id.button_simple);
+    assertTrue(strategy.injectMotionEvent(obtain(MotionEvent.ACTION_DOWN, 1, center)));
+    assertEquals(1, platformActions.size());
+  }
+
+  public void testEnabled_tapsOwnWindowDirectly() throws Exception {
+    strategy.setEnabled(true);
+    float[] center = centerOf(R.id.button_simple);
+    long downTime = SystemClock.uptimeMillis();
+    assertTrue(strategy.injectMotionEvent(obtain(MotionEvent.ACTION_DOWN, downTime, center)));
+    assertTrue(strategy.injectMotionEvent(obtain(MotionEvent.ACTION_UP, downTime, center)));
+    getInstrumentation().waitForIdleSync();
+    assertTrue(platformActions.isEmpty());
+    assertEquals("Hello Espresso!",
+        ((TextView) getActivity().findViewById(R.id.text_simple)).getText().toString());
+  }
+
+  public void testEnabled_gestureOutsideOwnWindowsUsesPlatform() throws Exception {
+    strategy.setEnabled(true);
+    long downTime = SystemClock.uptimeMillis();
+    float[] outside = new float[] {-100, -100};
+    assertTrue(strategy.injectMotionEvent(obtain(MotionEvent.ACTION_DOWN, downTime, outside)));
+    // the rest of the gesture follows its down event, even when it moves into our window.
+    assertTrue(strategy.injectMotionEvent(
+        obtain(MotionEvent.ACTION_UP, downTime, centerOf(R.id.button_simple))));
+    assertEquals(Lists.newArrayList(MotionEvent.ACTION_DOWN, MotionEvent.ACTION_UP),
+        platformActions);
+  }
+
+  public void testEnabled_unfocusedWindowAboveUsesPlatform() throws Throwable {
+    strategy.setEnabled(true);
+    final View button = getActivity().findViewById(R.id.button_simple);
+    final PopupWindow[] popup = new PopupWindow[1];
+    runTestOnUiThread(new Runnable() {
+      @Override
+      public void run() {
+        // a window covering the button without taking window focus, as the keyboard would.
+        popup[0] = new PopupWindow(new View(getActivity()), button.getWidth(), button.getHeight(),
+            false);
+        popup[0].showAsDropDown(button, 0, -button.getHeight());
+      }
+    });
+    getInstrumentation().waitForIdleSync();
+    try {
+      float[] center = centerOf(R.id.button_simple);
+      long downTime = SystemClock.uptimeMillis();
+      assertTrue(strategy.injectMotionEvent(obtain(MotionEvent.ACTION_DOWN, downTime, center)));
+      assertTrue(strategy.injectMotionEvent(obtain(MotionEvent.ACTION_UP, downTime, center)));
+      assertEquals(Lists.newArrayList(MotionEvent.ACTION_DOWN, MotionEvent.ACTION_UP),
+          platformActions);
+    } finally {
+      runTestOnUiThread(new Runnable() {
+        @Override
+        public void run() {
+          popup[0].dismiss();
+        }
+      });
+    }
+  }
+
+  public void testEnabled_systemKeysUsePlatform() throws Exception {
+    strategy.setEnabled(true);
+    assertTrue(strategy.injectKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_MENU)));
+    assertEquals(1, platformActions.size());
+  }
+
+  private float[] centerOf(int id) {
+    View view = getActivity().findViewById(id);
+    int[] location = new int[2];
+    view.getLocationOnScreen(location);
+    return new float[] {location[0] + view.getWidth() / 2f, location[1] + view.getHeight() / 2f};
+  }
+
+  private static MotionEvent obtain(int action, long downTime, float[] coordinates) {
+    return MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, coordinates[0],
+        coordinates[1], 0);
+  }
+}
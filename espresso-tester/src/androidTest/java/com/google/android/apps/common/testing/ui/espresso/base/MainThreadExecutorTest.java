@@ -0,0 +1,111 @@
+package com.google.android.apps.common.testing.ui.espresso.base;
+
+import com.google.common.collect.Lists;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.test.InstrumentationTestCase;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link MainThreadExecutor}.
+ */
+public class MainThreadExecutorTest extends InstrumentationTestCase {
+
+  private Handler mainHandler;
+  private MainThreadExecutor executor;
+  private List<String> events;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    mainHandler = new Handler(Looper.getMainLooper());
+    executor = new MainThreadExecutor(Looper.getMainLooper());
+    events = Collections.synchronizedList(Lists.<String>newArrayList());
+  }
+
+  public void testTasksRunInOrder() throws Exception {
+    CountDownLatch done = new CountDownLatch(3);
+    executor.execute(new Recorder("first", done));
+    executor.execute(new Recorder("second", done));
+    executor.execute(new Recorder("third", done));
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(Lists.newArrayList("first", "second", "third"), events);
+    assertEquals(3, executor.getQueueWaitCount());
+  }
+
+  public void testQueueWaitStats() throws Exception {
+    assertEquals(0, executor.getLastQueueWaitNanos());
+    runBehindBacklog();
+    assertEquals(1, executor.getQueueWaitCount());
+    assertTrue(executor.getLastQueueWaitNanos() > 0);
+    assertEquals(executor.getLastQueueWaitNanos(), executor.getTotalQueueWaitNanos());
+    assertEquals(executor.getLastQueueWaitNanos(), executor.getMaxQueueWaitNanos());
+
+    executor.resetQueueWaitStats();
+    assertEquals(0, executor.getQueueWaitCount());
+    assertEquals(0, executor.getTotalQueueWaitNanos());
+    assertEquals(0, executor.getMaxQueueWaitNanos());
+    assertEquals(0, executor.getLastQueueWaitNanos());
+  }
+
+  public void testNormalModeWaitsBehindBacklog() throws Exception {
+    assertEquals(Lists.newArrayList("app", "app", "espresso"), runBehindBacklog());
+  }
+
+  public void testPriorityModeJumpsBacklog() throws Exception {
+    executor.setPriorityMode(true);
+    assertEquals(Lists.newArrayList("espresso", "app", "app"), runBehindBacklog());
+  }
+
+  public void testPriorityModeCapDoesNotCarryOverBetweenInteractions() throws Exception {
+    executor.setPriorityMode(true);
+    for (int i = 0; i <= MainThreadExecutor.MAX_CONSECUTIVE_FRONT_POSTS; i++) {
+      events.clear();
+      assertEquals("interaction " + i, Lists.newArrayList("espresso", "app", "app"),
+          runBehindBacklog());
+    }
+  }
+
+  private List<String> runBehindBacklog() throws InterruptedException {
+    // hold the main thread while the backlog builds up.
+    final CountDownLatch release = new CountDownLatch(1);
+    mainHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          release.await();
+        } catch (InterruptedException ie) {
+          throw new RuntimeException(ie);
+        }
+      }
+    });
+    CountDownLatch done = new CountDownLatch(3);
+    mainHandler.post(new Recorder("app", done));
+    mainHandler.post(new Recorder("app", done));
+    executor.execute(new Recorder("espresso", done));
+    release.countDown();
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    return events;
+  }
+
+  private class Recorder implements Runnable {
+    private final String name;
+    private final CountDownLatch done;
+
+    Recorder(String name, CountDownLatch done) {
+      this.name = name;
+      this.done = done;
+    }
+
+    @Override
+    public void run() {
+      events.add(name);
+      done.countDown();
+    }
+  }
+}
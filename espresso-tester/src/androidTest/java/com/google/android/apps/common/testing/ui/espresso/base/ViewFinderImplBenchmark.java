@@ -0,0 +1,95 @@
+package com.google.android.apps.common.testing.ui.espresso.base;
+
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.hasDescendant;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withId;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withTagValue;
+import static com.google.android.apps.common.testing.ui.espresso.util.TreeIterables.breadthFirstViewTraversal;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import com.google.android.apps.common.testing.ui.espresso.ViewFinder;
+
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.test.UiThreadTest;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import org.hamcrest.Matcher;
+
+import javax.inject.Provider;
+
+/**
+ * Measures {@link ViewFinderImpl} lookups with structural matchers on a 10,000 view hierarchy.
+ */
+public class ViewFinderImplBenchmark extends InstrumentationTestCase {
+  private static final String TAG = ViewFinderImplBenchmark.class.getSimpleName();
+
+  private static final int CHAINS = 100;
+  private static final int CHAIN_LENGTH = 100;
+  private static final int TARGET_LEAF_ID = 42;
+
+  private ViewGroup root;
+  private View targetHead;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    // 100 nested chains of 100 views each - deep enough that re-scanning every subtree hurts.
+    root = new FrameLayout(getInstrumentation().getTargetContext());
+    for (int chain = 0; chain < CHAINS; chain++) {
+      ViewGroup head = new FrameLayout(getInstrumentation().getTargetContext());
+      head.setTag("head");
+      root.addView(head);
+      ViewGroup current = head;
+      for (int depth = 2; depth < CHAIN_LENGTH; depth++) {
+        ViewGroup next = new FrameLayout(getInstrumentation().getTargetContext());
+        current.addView(next);
+        current = next;
+      }
+      TextView leaf = new TextView(getInstrumentation().getTargetContext());
+      if (chain == CHAINS / 2) {
+        leaf.setId(TARGET_LEAF_ID);
+        targetHead = head;
+      }
+      current.addView(leaf);
+    }
+  }
+
+  @UiThreadTest
+  @SuppressWarnings("unchecked")
+  public void testHasDescendant_tenThousandViews() {
+    // hasDescendant comes first so it is evaluated against every view in the hierarchy.
+    Matcher<View> headOfTarget = allOf(
+        hasDescendant(withId(TARGET_LEAF_ID)), withTagValue(is((Object) "head")));
+
+    long start = SystemClock.elapsedRealtime();
+    View unscoped = null;
+    for (View view : breadthFirstViewTraversal(root)) {
+      if (headOfTarget.matches(view)) {
+        unscoped = view;
+      }
+    }
+    long unscopedMillis = SystemClock.elapsedRealtime() - start;
+
+    ViewFinder finder = new ViewFinderImpl(headOfTarget, new Provider<View>() {
+      @Override
+      public View get() {
+        return root;
+      }
+    });
+    start = SystemClock.elapsedRealtime();
+    View scoped = finder.getView();
+    long scopedMillis = SystemClock.elapsedRealtime() - start;
+
+    Log.i(TAG, String.format("hasDescendant over %s views: per-view traversal: %sms, "
+        + "memoized finder: %sms", CHAINS * CHAIN_LENGTH + 1, unscopedMillis, scopedMillis));
+    assertThat(unscoped, sameInstance(targetHead));
+    assertThat(scoped, sameInstance(targetHead));
+  }
+}
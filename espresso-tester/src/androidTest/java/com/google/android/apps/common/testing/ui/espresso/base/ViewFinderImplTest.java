@@ -1,5 +1,7 @@
 package com.google.android.apps.common.testing.ui.espresso.base;
 
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isAssignableFrom;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withId;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.sameInstance;
 
@@ -10,11 +12,17 @@ import com.google.android.apps.common.testing.ui.espresso.ViewFinder;
 import android.test.InstrumentationTestCase;
 import android.test.UiThreadTest;
 import android.view.View;
+import android.view.ViewGroup;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
 
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
 import org.hamcrest.Matchers;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import javax.inject.Provider;
 
 /** Unit tests for {@link ViewFinderImpl}. */
@@ -85,6 +93,76 @@ public class ViewFinderImplTest extends InstrumentationTestCase {
     } catch (AmbiguousViewMatcherException expected) {}
   }
 
+  @UiThreadTest
+  public void testGetView_secondMatchFoundByLaterLookup() {
+    ViewFinder finder = new ViewFinderImpl(withId(5), testViewProvider);
+    assertThat(finder.getView(), sameInstance(nestedChild));
+    View sibling = new TextView(getInstrumentation().getTargetContext());
+    sibling.setId(5);
+    testView.addView(sibling);
+    try {
+      finder.getView();
+      fail("a view that started matching since the first lookup makes it ambiguous.");
+    } catch (AmbiguousViewMatcherException expected) {}
+  }
+
+  @UiThreadTest
+  public void testIsStillMatchedUnder() {
+    assertTrue(ViewFinderImpl.isStillMatchedUnder(withId(5), nestedChild, testView));
+    nestedChild.setId(6);
+    assertFalse(ViewFinderImpl.isStillMatchedUnder(withId(5), nestedChild, testView));
+    nestedChild.setId(5);
+    ((ViewGroup) nestedChild.getParent()).removeView(nestedChild);
+    assertFalse(ViewFinderImpl.isStillMatchedUnder(withId(5), nestedChild, testView));
+  }
+
+  @UiThreadTest
+  public void testGetViewAt_breadthFirstOrder() {
+    Matcher<View> textViews = isAssignableFrom(TextView.class);
+    assertThat(ViewFinderImpl.getViewAt(textViews, testView, 0), sameInstance(child1));
+    assertThat(ViewFinderImpl.getViewAt(textViews, testView, 3), sameInstance(child4));
+    // the nested child is one level deeper than all other text views.
+    assertThat(ViewFinderImpl.getViewAt(textViews, testView, 4), sameInstance(nestedChild));
+  }
+
+  @UiThreadTest
+  public void testGetViewAt_stopsAtMatch() {
+    final AtomicInteger matchCount = new AtomicInteger();
+    Matcher<View> countingMatcher = new BaseMatcher<View>() {
+      @Override
+      public boolean matches(Object item) {
+        matchCount.incrementAndGet();
+        return true;
+      }
+
+      @Override
+      public void describeTo(Description description) {
+        description.appendText("anything");
+      }
+    };
+    assertThat(ViewFinderImpl.getViewAt(countingMatcher, testView, 1), sameInstance(child1));
+    assertEquals(2, matchCount.get());
+  }
+
+  @UiThreadTest
+  public void testGetViewAt_tooFewMatches() {
+    try {
+      ViewFinderImpl.getViewAt(isAssignableFrom(TextView.class), testView, 5);
+      fail("there are only five text views.");
+    } catch (NoMatchingViewException expected) {
+      assertTrue(expected.getMessage(), expected.getMessage().contains("Only 5 views matched"));
+      assertFalse(expected.getMessage(), expected.getMessage().contains("No views in hierarchy"));
+    }
+  }
+
+  @UiThreadTest
+  public void testCountMatches() {
+    Matcher<View> textViews = isAssignableFrom(TextView.class);
+    assertEquals(5, ViewFinderImpl.countMatches(textViews, testView, Integer.MAX_VALUE));
+    assertEquals(2, ViewFinderImpl.countMatches(textViews, testView, 2));
+    assertEquals(0, ViewFinderImpl.countMatches(withId(42), testView, Integer.MAX_VALUE));
+  }
+
   public void testFind_offUiThread() {
     ViewFinder finder = new ViewFinderImpl(sameInstance(nestedChild), testViewProvider);
     try {
@@ -0,0 +1,185 @@
+package com.google.android.apps.common.testing.ui.espresso.matcher;
+
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.hasDescendant;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.hasSibling;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isAssignableFrom;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isChecked;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isDescendantOfA;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isEnabled;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isNotChecked;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isRoot;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withChild;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withContentDescription;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withEffectiveVisibility;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withId;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withParent;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withTagValue;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withText;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+import com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.Visibility;
+import com.google.android.apps.common.testing.ui.espresso.tester.test.R;
+import com.google.common.collect.Lists;
+
+import android.graphics.Typeface;
+import android.test.InstrumentationTestCase;
+import android.test.UiThreadTest;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.CheckBox;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import org.hamcrest.Matcher;
+
+import java.util.List;
+
+/**
+ * Unit tests for {@link HierarchySnapshot}.
+ */
+public class HierarchySnapshotTest extends InstrumentationTestCase {
+
+  private ViewGroup root;
+  private ViewGroup list;
+  private TextView title;
+  private CheckBox checkBox;
+  private TextView hidden;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    root = new FrameLayout(getInstrumentation().getTargetContext());
+    list = new LinearLayout(getInstrumentation().getTargetContext());
+    list.setId(R.id.testId1);
+    title = new TextView(getInstrumentation().getTargetContext());
+    title.setText("title");
+    title.setContentDescription("the title");
+    checkBox = new CheckBox(getInstrumentation().getTargetContext());
+    checkBox.setChecked(true);
+    checkBox.setEnabled(false);
+    hidden = new TextView(getInstrumentation().getTargetContext());
+    hidden.setId(R.id.testId2);
+    hidden.setVisibility(View.GONE);
+    list.addView(title);
+    list.addView(checkBox);
+    root.addView(list);
+    root.addView(hidden);
+  }
+
+  @UiThreadTest
+  public void testCapture_depthFirstOrder() {
+    HierarchySnapshot snapshot = HierarchySnapshot.capture(root);
+    assertEquals(5, snapshot.size());
+    // root, list, title, checkBox, hidden.
+    assertEquals(-1, snapshot.getParentIndex(0));
+    assertEquals(0, snapshot.getParentIndex(1));
+    assertEquals(1, snapshot.getParentIndex(2));
+    assertEquals(1, snapshot.getParentIndex(3));
+    assertEquals(0, snapshot.getParentIndex(4));
+    assertEquals(5, snapshot.getSubtreeEnd(0));
+    assertEquals(4, snapshot.getSubtreeEnd(1));
+    assertEquals(3, snapshot.getSubtreeEnd(2));
+    assertEquals(4, snapshot.getSubtreeEnd(3));
+    assertEquals(5, snapshot.getSubtreeEnd(4));
+    assertEquals("title", snapshot.getText(2));
+    assertNull(snapshot.getText(1));
+  }
+
+  @UiThreadTest
+  @SuppressWarnings("unchecked")
+  public void testStandardMatchers_agreeWithLiveViews() {
+    List<Matcher<View>> matchers = Lists.newArrayList(
+        withId(R.id.testId1),
+        withText("title"),
+        withText(is("nope")),
+        withContentDescription("the title"),
+        isEnabled(),
+        isChecked(),
+        isNotChecked(),
+        isRoot(),
+        isAssignableFrom(TextView.class),
+        withEffectiveVisibility(Visibility.GONE),
+        withParent(withId(R.id.testId1)),
+        withChild(isChecked()),
+        hasSibling(withText("title")),
+        hasDescendant(isChecked()),
+        isDescendantOfA(withId(R.id.testId1)),
+        SnapshotMatchers.allOf(withText("title"), isEnabled()),
+        SnapshotMatchers.anyOf(isChecked(), withId(R.id.testId2)),
+        SnapshotMatchers.not(isEnabled()));
+
+    HierarchySnapshot snapshot = HierarchySnapshot.capture(root);
+    for (Matcher<View> matcher : matchers) {
+      assertTrue(matcher.toString(), HierarchySnapshot.canMatch(matcher));
+      int index = 0;
+      for (View view : depthFirst(root)) {
+        assertEquals(matcher + " on " + view, matcher.matches(view),
+            snapshot.matches(matcher, index));
+        index++;
+      }
+    }
+  }
+
+  @UiThreadTest
+  @SuppressWarnings("unchecked")
+  public void testSpannedContentDescription_agreesWithLiveView() {
+    SpannableString description = new SpannableString("styled");
+    description.setSpan(new StyleSpan(Typeface.BOLD), 0, 3, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    checkBox.setContentDescription(description);
+    Matcher<View> spanned = withContentDescription((Matcher) instanceOf(Spanned.class));
+    HierarchySnapshot snapshot = HierarchySnapshot.capture(root);
+
+    assertTrue(spanned.matches(checkBox));
+    assertTrue(snapshot.matches(spanned, 3));
+    assertFalse(snapshot.matches(spanned, 2));
+    assertEquals("styled", snapshot.getContentDescription(3).toString());
+    // later changes to the view's description do not show through the snapshot.
+    description.removeSpan(description.getSpans(0, 6, StyleSpan.class)[0]);
+    assertEquals(1, ((Spanned) snapshot.getContentDescription(3))
+        .getSpans(0, 6, StyleSpan.class).length);
+  }
+
+  @UiThreadTest
+  public void testIndicesMatching_largeHierarchy() {
+    ViewGroup big = new FrameLayout(getInstrumentation().getTargetContext());
+    for (int i = 0; i < 10000; i++) {
+      TextView child = new TextView(getInstrumentation().getTargetContext());
+      child.setText(i % 1000 == 0 ? "match" : "other");
+      big.addView(child);
+    }
+    int[] matched = HierarchySnapshot.capture(big).indicesMatching(withText("match"));
+    assertEquals(10, matched.length);
+    for (int i = 0; i < matched.length; i++) {
+      assertEquals(i * 1000 + 1, matched[i]);
+    }
+  }
+
+  @UiThreadTest
+  public void testLiveOnlyMatchersAreRejected() {
+    Matcher<View> liveOnly = withTagValue(is((Object) "tag"));
+    assertFalse(HierarchySnapshot.canMatch(liveOnly));
+    assertFalse(HierarchySnapshot.canMatch(hasDescendant(liveOnly)));
+    assertFalse(HierarchySnapshot.canMatch(SnapshotMatchers.allOf(isEnabled(), liveOnly)));
+    try {
+      HierarchySnapshot.capture(root).indicesMatching(hasDescendant(liveOnly));
+      fail("should throw");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  private static List<View> depthFirst(View view) {
+    List<View> views = Lists.newArrayList(view);
+    if (view instanceof ViewGroup) {
+      ViewGroup group = (ViewGroup) view;
+      for (int i = 0; i < group.getChildCount(); i++) {
+        views.addAll(depthFirst(group.getChildAt(i)));
+      }
+    }
+    return views;
+  }
+}
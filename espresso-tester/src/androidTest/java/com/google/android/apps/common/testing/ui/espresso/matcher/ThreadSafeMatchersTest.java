@@ -0,0 +1,50 @@
+package com.google.android.apps.common.testing.ui.espresso.matcher;
+
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ThreadSafeMatchers.indicesMatching;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ThreadSafeMatchers.isThreadSafe;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ThreadSafeMatchers.threadSafe;
+import static org.hamcrest.Matchers.endsWith;
+
+import com.google.common.collect.Lists;
+
+import junit.framework.TestCase;
+
+import org.hamcrest.Matcher;
+
+import java.util.List;
+
+/**
+ * Unit tests for {@link ThreadSafeMatchers}.
+ */
+public class ThreadSafeMatchersTest extends TestCase {
+
+  public void testThreadSafe_matchesAndDescribesLikeDelegate() {
+    Matcher<String> matcher = endsWith("7");
+    Matcher<String> declared = threadSafe(matcher);
+    assertTrue(isThreadSafe(declared));
+    assertFalse(isThreadSafe(matcher));
+    assertTrue(declared.matches("17"));
+    assertFalse(declared.matches("71"));
+    assertEquals(matcher.toString(), declared.toString());
+  }
+
+  public void testIndicesMatching_largeListKeepsOrder() {
+    List<String> items = Lists.newArrayList();
+    for (int i = 0; i < 100000; i++) {
+      items.add(i % 1000 == 7 ? "match" : "other");
+    }
+    int[] matched = indicesMatching(threadSafe(endsWith("match")), items);
+    assertEquals(100, matched.length);
+    for (int i = 0; i < matched.length; i++) {
+      assertEquals(i * 1000 + 7, matched[i]);
+    }
+  }
+
+  public void testIndicesMatching_rejectsUndeclaredMatcher() {
+    try {
+      indicesMatching(endsWith("match"), Lists.newArrayList("match"));
+      fail("should throw");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package com.google.android.apps.common.testing.ui.espresso.matcher;
+
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isDisplayed;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withId;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.is;
+
+import com.google.android.apps.common.testing.ui.espresso.tester.test.R;
+
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.util.Log;
+import android.view.View;
+import android.widget.TextView;
+
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.TypeSafeMatcher;
+
+/**
+ * Measures the cost of building {@link ViewMatchers} and of calling matches() on them.
+ */
+public class ViewMatchersBenchmark extends InstrumentationTestCase {
+  private static final String TAG = ViewMatchersBenchmark.class.getSimpleName();
+
+  private static final int ITERATIONS = 100000;
+
+  private TextView view;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    view = new TextView(getInstrumentation().getTargetContext());
+    view.setId(R.id.testId1);
+    view.setText("hello");
+  }
+
+  @SuppressWarnings("unchecked")
+  public void testConstruction() {
+    long start = SystemClock.elapsedRealtime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      allOf(reflectiveWithId(R.id.testId1), isDisplayed());
+    }
+    long reflectiveMillis = SystemClock.elapsedRealtime() - start;
+
+    start = SystemClock.elapsedRealtime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      allOf(withId(R.id.testId1), isDisplayed());
+    }
+    long boundedMillis = SystemClock.elapsedRealtime() - start;
+
+    ViewMatchers.setInterningEnabled(true);
+    long internedMillis;
+    try {
+      start = SystemClock.elapsedRealtime();
+      for (int i = 0; i < ITERATIONS; i++) {
+        allOf(withId(R.id.testId1), isDisplayed());
+      }
+      internedMillis = SystemClock.elapsedRealtime() - start;
+    } finally {
+      ViewMatchers.setInterningEnabled(false);
+    }
+
+    Log.i(TAG, String.format("Building %s matchers: reflective: %sms, bounded: %sms, "
+        + "interned: %sms", ITERATIONS, reflectiveMillis, boundedMillis, internedMillis));
+  }
+
+  public void testMatches() {
+    Matcher<View> reflective = reflectiveWithId(R.id.testId1);
+    long start = SystemClock.elapsedRealtime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      assertTrue(reflective.matches(view));
+    }
+    long reflectiveMillis = SystemClock.elapsedRealtime() - start;
+
+    Matcher<View> bounded = withId(R.id.testId1);
+    start = SystemClock.elapsedRealtime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      assertTrue(bounded.matches(view));
+    }
+    long boundedMillis = SystemClock.elapsedRealtime() - start;
+
+    Log.i(TAG, String.format("Calling matches() %s times: reflective: %sms, bounded: %sms",
+        ITERATIONS, reflectiveMillis, boundedMillis));
+  }
+
+  /**
+   * withId as it used to be implemented: hamcrest looks up matchesSafely reflectively whenever
+   * one of these is created.
+   */
+  private static Matcher<View> reflectiveWithId(final int id) {
+    final Matcher<Integer> integerMatcher = is(id);
+    return new TypeSafeMatcher<View>() {
+      @Override
+      public void describeTo(Description description) {
+        description.appendText("with id: ");
+        integerMatcher.describeTo(description);
+      }
+
+      @Override
+      public boolean matchesSafely(View view) {
+        return integerMatcher.matches(view.getId());
+      }
+    };
+  }
+}
@@ -7,7 +7,10 @@ import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMat
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isAssignableFrom;
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isChecked;
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isClickable;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isCompletelyDisplayed;
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isDescendantOfA;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isDisplayed;
+import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isDisplayingAtLeast;
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isEnabled;
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isFocusable;
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isNotChecked;
@@ -21,10 +24,13 @@ import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMat
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withTagKey;
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withTagValue;
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.withText;
+import static com.google.android.apps.common.testing.ui.espresso.util.TreeIterables.breadthFirstViewTraversal;
 import static org.hamcrest.Matchers.is;
 
 import com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.Visibility;
 import com.google.android.apps.common.testing.ui.espresso.tester.test.R;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 import android.test.InstrumentationTestCase;
 import android.view.View;
@@ -42,8 +48,12 @@ import android.widget.ScrollView;
 import android.widget.Spinner;
 import android.widget.TextView;
 
+import org.hamcrest.Description;
 import org.hamcrest.Matcher;
 import org.hamcrest.Matchers;
+import org.hamcrest.TypeSafeMatcher;
+
+import java.util.List;
 
 /**
  * Unit tests for {@link ViewMatchers}.
@@ -258,6 +268,61 @@ public class ViewMatchersTest extends InstrumentationTestCase {
     assertFalse(hasDescendant(isAssignableFrom(TextView.class)).matches(v));
   }
 
+  public void testHasDescendant_inQueryScope() {
+    View v = new TextView(getInstrumentation().getTargetContext());
+    ViewGroup parent = new RelativeLayout(getInstrumentation().getTargetContext());
+    ViewGroup grany = new ScrollView(getInstrumentation().getTargetContext());
+    grany.addView(parent);
+    parent.addView(v);
+    Matcher<View> hasTextViewDescendant = hasDescendant(isAssignableFrom(TextView.class));
+    Matcher<View> hasScrollViewDescendant = hasDescendant(isAssignableFrom(ScrollView.class));
+    ViewQueryScope scope = ViewQueryScope.begin();
+    try {
+      assertTrue(hasTextViewDescendant.matches(grany));
+      assertTrue(hasTextViewDescendant.matches(parent));
+      assertFalse(hasTextViewDescendant.matches(v));
+      assertFalse(hasScrollViewDescendant.matches(grany));
+      assertFalse(hasScrollViewDescendant.matches(parent));
+    } finally {
+      scope.end();
+    }
+    assertFalse(ViewQueryScope.isActive());
+  }
+
+  public void testHasDescendant_inQueryScopeMatchesEachViewOnce() {
+    final ViewGroup grany = new LinearLayout(getInstrumentation().getTargetContext());
+    for (int i = 0; i < 3; i++) {
+      ViewGroup parent = new LinearLayout(getInstrumentation().getTargetContext());
+      parent.addView(new View(getInstrumentation().getTargetContext()));
+      parent.addView(new View(getInstrumentation().getTargetContext()));
+      grany.addView(parent);
+    }
+    final List<View> evaluated = Lists.newArrayList();
+    Matcher<View> hasNothing = hasDescendant(new TypeSafeMatcher<View>() {
+      @Override
+      public void describeTo(Description description) {
+        description.appendText("never");
+      }
+
+      @Override
+      public boolean matchesSafely(View view) {
+        evaluated.add(view);
+        return false;
+      }
+    });
+    ViewQueryScope scope = ViewQueryScope.begin();
+    try {
+      for (View view : breadthFirstViewTraversal(grany)) {
+        assertFalse(hasNothing.matches(view));
+      }
+    } finally {
+      scope.end();
+    }
+    // every view but the root is a descendant of something, and is matched only once.
+    assertEquals(9, evaluated.size());
+    assertEquals(9, Sets.newHashSet(evaluated).size());
+  }
+
   public void testIsDescendantOfA() {
     View v = new TextView(getInstrumentation().getTargetContext());
     ViewGroup parent = new RelativeLayout(getInstrumentation().getTargetContext());
@@ -269,6 +334,45 @@ public class ViewMatchersTest extends InstrumentationTestCase {
     assertFalse(isDescendantOfA(isAssignableFrom(LinearLayout.class)).matches(v));
   }
 
+  public void testIsDescendantOfA_inQueryScopeMatchesEachAncestorOnce() {
+    ViewGroup grany = new ScrollView(getInstrumentation().getTargetContext());
+    ViewGroup parent = new LinearLayout(getInstrumentation().getTargetContext());
+    grany.addView(parent);
+    List<View> children = Lists.newArrayList();
+    for (int i = 0; i < 5; i++) {
+      View child = new TextView(getInstrumentation().getTargetContext());
+      parent.addView(child);
+      children.add(child);
+    }
+    final List<View> evaluated = Lists.newArrayList();
+    Matcher<View> insideRelativeLayout = isDescendantOfA(new TypeSafeMatcher<View>() {
+      @Override
+      public void describeTo(Description description) {
+        description.appendText("is a RelativeLayout");
+      }
+
+      @Override
+      public boolean matchesSafely(View view) {
+        evaluated.add(view);
+        return view instanceof RelativeLayout;
+      }
+    });
+    ViewQueryScope scope = ViewQueryScope.begin();
+    try {
+      for (View child : children) {
+        assertFalse(insideRelativeLayout.matches(child));
+      }
+    } finally {
+      scope.end();
+    }
+    // parent and grany are each matched once, no matter how many children share them.
+    assertEquals(2, evaluated.size());
+
+    evaluated.clear();
+    assertFalse(insideRelativeLayout.matches(children.get(0)));
+    assertEquals(2, evaluated.size());
+  }
+
   public void testIsVisible() {
     View visible = new View(getInstrumentation().getTargetContext());
     visible.setVisibility(View.VISIBLE);
@@ -314,6 +418,70 @@ public class ViewMatchersTest extends InstrumentationTestCase {
     assertTrue(withEffectiveVisibility(Visibility.GONE).matches(visible));
   }
 
+  public void testWithEffectiveVisibility_inQueryScope() {
+    ViewGroup grany = new RelativeLayout(getInstrumentation().getTargetContext());
+    ViewGroup parent = new RelativeLayout(getInstrumentation().getTargetContext());
+    View visible = new View(getInstrumentation().getTargetContext());
+    View gone = new View(getInstrumentation().getTargetContext());
+    gone.setVisibility(View.GONE);
+    grany.addView(parent);
+    parent.addView(visible);
+    parent.addView(gone);
+    parent.setVisibility(View.INVISIBLE);
+
+    ViewQueryScope scope = ViewQueryScope.begin();
+    try {
+      assertTrue(withEffectiveVisibility(Visibility.VISIBLE).matches(grany));
+      assertFalse(withEffectiveVisibility(Visibility.VISIBLE).matches(visible));
+      assertTrue(withEffectiveVisibility(Visibility.INVISIBLE).matches(visible));
+      assertFalse(withEffectiveVisibility(Visibility.GONE).matches(visible));
+      assertTrue(withEffectiveVisibility(Visibility.INVISIBLE).matches(gone));
+      assertTrue(withEffectiveVisibility(Visibility.GONE).matches(gone));
+
+      // the geometry is only recomputed once the scope is invalidated.
+      parent.setVisibility(View.VISIBLE);
+      assertFalse(withEffectiveVisibility(Visibility.VISIBLE).matches(visible));
+      ViewQueryScope.invalidate();
+      assertTrue(withEffectiveVisibility(Visibility.VISIBLE).matches(visible));
+      assertFalse(withEffectiveVisibility(Visibility.INVISIBLE).matches(gone));
+    } finally {
+      scope.end();
+    }
+  }
+
+  public void testParameterlessMatchersAreShared() {
+    assertSame(isDisplayed(), isDisplayed());
+    assertSame(isCompletelyDisplayed(), isCompletelyDisplayed());
+    assertSame(isEnabled(), isEnabled());
+    assertSame(isChecked(), isChecked());
+    assertSame(isRoot(), isRoot());
+    assertSame(withEffectiveVisibility(Visibility.GONE),
+        withEffectiveVisibility(Visibility.GONE));
+    assertNotSame(withEffectiveVisibility(Visibility.GONE),
+        withEffectiveVisibility(Visibility.VISIBLE));
+  }
+
+  public void testInterning() {
+    assertNotSame(withId(R.id.testId1), withId(R.id.testId1));
+    ViewMatchers.setInterningEnabled(true);
+    try {
+      assertSame(withId(R.id.testId1), withId(R.id.testId1));
+      assertNotSame(withId(R.id.testId1), withId(R.id.testId2));
+      assertSame(withText("hello"), withText("hello"));
+      assertNotSame(withText("hello"), withContentDescription("hello"));
+      assertSame(withContentDescription("hello"), withContentDescription("hello"));
+      assertSame(isDisplayingAtLeast(90), isDisplayingAtLeast(90));
+
+      View view = new View(getInstrumentation().getTargetContext());
+      view.setId(R.id.testId1);
+      assertTrue(withId(R.id.testId1).matches(view));
+      assertFalse(withId(R.id.testId2).matches(view));
+    } finally {
+      ViewMatchers.setInterningEnabled(false);
+    }
+    assertNotSame(withId(R.id.testId1), withId(R.id.testId1));
+  }
+
   public void testIsClickable() {
     View clickable = new View(getInstrumentation().getTargetContext());
     clickable.setClickable(true);
@@ -391,6 +559,26 @@ public class ViewMatchersTest extends InstrumentationTestCase {
     assertFalse(withChild(is(view3)).matches(view3));
   }
 
+  public void testWithChild_inQueryScope() {
+    View view1 = new TextView(getInstrumentation().getTargetContext());
+    View view2 = new TextView(getInstrumentation().getTargetContext());
+    ViewGroup tiptop = new RelativeLayout(getInstrumentation().getTargetContext());
+    ViewGroup secondLevel = new RelativeLayout(getInstrumentation().getTargetContext());
+    secondLevel.addView(view2);
+    tiptop.addView(secondLevel);
+    tiptop.addView(view1);
+    Matcher<View> withView1Child = withChild(is(view1));
+    ViewQueryScope scope = ViewQueryScope.begin();
+    try {
+      assertTrue(withView1Child.matches(tiptop));
+      assertTrue(withView1Child.matches(tiptop));
+      assertFalse(withView1Child.matches(secondLevel));
+      assertFalse(withView1Child.matches(view1));
+    } finally {
+      scope.end();
+    }
+  }
+
   public void testIsRootView() {
     ViewGroup rootView = new ViewGroup(getInstrumentation().getTargetContext()) {
       @Override
@@ -418,6 +606,26 @@ public class ViewMatchersTest extends InstrumentationTestCase {
     assertFalse(hasSibling(is(v3)).matches(parent));
   }
 
+  public void testHasSibling_inQueryScope() {
+    TextView v1 = new TextView(getInstrumentation().getTargetContext());
+    v1.setText("Bill Odama");
+    Button v2 = new Button(getInstrumentation().getTargetContext());
+    View v3 = new View(getInstrumentation().getTargetContext());
+    ViewGroup parent = new LinearLayout(getInstrumentation().getTargetContext());
+    parent.addView(v1);
+    parent.addView(v2);
+    parent.addView(v3);
+    Matcher<View> nextToBill = hasSibling(withText("Bill Odama"));
+    ViewQueryScope scope = ViewQueryScope.begin();
+    try {
+      assertTrue(nextToBill.matches(v2));
+      assertTrue(nextToBill.matches(v3));
+      assertFalse(nextToBill.matches(parent));
+    } finally {
+      scope.end();
+    }
+  }
+
   public void testHasImeAction() {
     EditText editText = new EditText(getInstrumentation().getTargetContext());
     assertFalse(hasImeAction(EditorInfo.IME_ACTION_GO).matches(editText));
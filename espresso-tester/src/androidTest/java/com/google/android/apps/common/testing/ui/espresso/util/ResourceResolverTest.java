@@ -0,0 +1,63 @@
+package com.google.android.apps.common.testing.ui.espresso.util;
+
+import com.google.android.apps.common.testing.ui.espresso.GraphHolder;
+import com.google.android.apps.common.testing.ui.espresso.tester.test.R;
+
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.test.InstrumentationTestCase;
+
+import java.util.Locale;
+
+/**
+ * Unit tests for {@link ResourceResolver}.
+ */
+public class ResourceResolverTest extends InstrumentationTestCase {
+
+  private Resources resources;
+  private ResourceResolver resolver;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    resources = getInstrumentation().getContext().getResources();
+    // a resolver of our own, so cached lookups do not leak between tests.
+    resolver = new ResourceResolver();
+  }
+
+  public void testGraphProvidesOneResolver() {
+    assertSame(GraphHolder.resourceResolver(), GraphHolder.resourceResolver());
+  }
+
+  public void testGetString() {
+    assertEquals("Hello World", resolver.getString(resources, R.string.something));
+    assertEquals("Hello World", resolver.getString(resources, R.string.something));
+    assertEquals("Goodbye!!", resolver.getString(resources, R.string.other_string));
+  }
+
+  public void testGetResourceEntryName() {
+    assertEquals("testId1", resolver.getResourceEntryName(resources, R.id.testId1));
+    assertEquals("something", resolver.getResourceEntryName(resources, R.string.something));
+  }
+
+  public void testUnknownId() {
+    assertNull(resolver.getString(resources, -1));
+    assertNull(resolver.getString(resources, -1));
+    assertNull(resolver.getResourceEntryName(resources, -1));
+  }
+
+  public void testConfigurationChange() {
+    // a Resources instance of our own, so the change does not leak into other tests.
+    Resources ours = new Resources(
+        resources.getAssets(), resources.getDisplayMetrics(), resources.getConfiguration());
+    assertEquals("Hello World", resolver.getString(ours, R.string.something));
+
+    Configuration changed = new Configuration(ours.getConfiguration());
+    changed.locale = Locale.GERMAN.equals(changed.locale) ? Locale.FRENCH : Locale.GERMAN;
+    ours.updateConfiguration(changed, ours.getDisplayMetrics());
+
+    // still resolved correctly after the change (we have no translations).
+    assertEquals("Hello World", resolver.getString(ours, R.string.something));
+    assertEquals("something", resolver.getResourceEntryName(ours, R.string.something));
+  }
+}
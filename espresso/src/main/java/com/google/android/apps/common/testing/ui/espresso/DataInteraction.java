@@ -13,6 +13,7 @@ import com.google.android.apps.common.testing.ui.espresso.action.AdapterViewProt
 import com.google.android.apps.common.testing.ui.espresso.action.AdapterViewProtocols;
 import com.google.android.apps.common.testing.ui.espresso.matcher.RootMatchers;
 import com.google.common.base.Optional;
+import com.google.common.collect.Sets;
 
 import android.view.View;
 import android.view.ViewParent;
@@ -23,6 +24,11 @@ import org.hamcrest.Description;
 import org.hamcrest.Matcher;
 import org.hamcrest.TypeSafeMatcher;
 
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * An interface to interact with data displayed in AdapterViews.
  * <p>
@@ -44,6 +50,12 @@ import org.hamcrest.TypeSafeMatcher;
  * operate on a subview (eg: a Button within the list) use the onChildView method before calling
  * perform or check.
  * </p>
+ * <p>
+ * A DataInteraction may be kept and reused for several operations on the same row. Once the data
+ * has been loaded, later operations only verify that the view which rendered it still renders it in
+ * full, and load the data again only if it does not (e.g. the row scrolled partly or entirely out
+ * of sight, or the adapter changed).
+ * </p>
  *
  */
 public class DataInteraction {
@@ -55,6 +67,10 @@ public class DataInteraction {
   private AdapterViewProtocol adapterViewProtocol = AdapterViewProtocols.standardProtocol();
   private Matcher<Root> rootMatcher = RootMatchers.DEFAULT;
 
+  // the outcome of the last load, kept for as long as the configuration above does not change.
+  private AdapterDataLoaderAction resolvedLoad;
+  private volatile WeakReference<View> renderedView = new WeakReference<View>(null);
+
   DataInteraction(Matcher<Object> dataMatcher) {
     this.dataMatcher = checkNotNull(dataMatcher);
   }
@@ -65,6 +81,7 @@ public class DataInteraction {
    */
   public DataInteraction onChildView(Matcher<View> childMatcher) {
     this.childViewMatcher = Optional.of(checkNotNull(childMatcher));
+    forgetResolvedData();
     return this;
   }
 
@@ -73,6 +90,7 @@ public class DataInteraction {
    */
   public DataInteraction inRoot(Matcher<Root> rootMatcher) {
     this.rootMatcher = checkNotNull(rootMatcher);
+    forgetResolvedData();
     return this;
   }
 
@@ -82,6 +100,7 @@ public class DataInteraction {
    */
   public DataInteraction inAdapterView(Matcher<View> adapterMatcher) {
     this.adapterMatcher = checkNotNull(adapterMatcher);
+    forgetResolvedData();
     return this;
   }
 
@@ -91,6 +110,7 @@ public class DataInteraction {
    */
   public DataInteraction atPosition(Integer atPosition) {
     this.atPosition = Optional.of(checkNotNull(atPosition));
+    forgetResolvedData();
     return this;
   }
 
@@ -100,6 +120,7 @@ public class DataInteraction {
    */
   public DataInteraction usingAdapterViewProtocol(AdapterViewProtocol adapterViewProtocol) {
     this.adapterViewProtocol = checkNotNull(adapterViewProtocol);
+    forgetResolvedData();
     return this;
   }
 
@@ -109,11 +130,12 @@ public class DataInteraction {
    * @return an {@link ViewInteraction} for more assertions or actions.
    */
   public ViewInteraction perform(ViewAction... actions) {
-     AdapterDataLoaderAction adapterDataLoaderAction = load();
-
-    return onView(makeTargetMatcher(adapterDataLoaderAction))
+    Matcher<View> target = resolve();
+    ViewInteraction interaction = onView(makeTargetMatcher(target))
         .inRoot(rootMatcher)
         .perform(actions);
+    rememberRenderedView(target);
+    return interaction;
   }
 
   /**
@@ -122,11 +144,78 @@ public class DataInteraction {
    * @return an {@link ViewInteraction} for more assertions or actions.
    */
   public ViewInteraction check(ViewAssertion assertion) {
-     AdapterDataLoaderAction adapterDataLoaderAction = load();
-
-    return onView(makeTargetMatcher(adapterDataLoaderAction))
+    Matcher<View> target = resolve();
+    ViewInteraction interaction = onView(makeTargetMatcher(target))
         .inRoot(rootMatcher)
         .check(assertion);
+    rememberRenderedView(target);
+    return interaction;
+  }
+
+  private void forgetResolvedData() {
+    resolvedLoad = null;
+    renderedView = new WeakReference<View>(null);
+  }
+
+  /**
+   * Returns a matcher for the view rendering the data, loading the data only if the view which
+   * rendered it last time no longer fully does.
+   */
+  private Matcher<View> resolve() {
+    final View view = renderedView.get();
+    if (null != resolvedLoad && null != view) {
+      final AdapterDataLoaderAction load = resolvedLoad;
+      final AtomicBoolean stillRendered = new AtomicBoolean();
+      // a direct look at the remembered view, rather than a search of the hierarchy for it.
+      GraphHolder.viewInteractionFactory().runWhenIdle(new Runnable() {
+        @Override
+        public void run() {
+          stillRendered.set(isStillRendering(view, load));
+        }
+      });
+      if (stillRendered.get()) {
+        return stillRendering(renderedView, load);
+      }
+    }
+    forgetResolvedData();
+    resolvedLoad = load();
+    return new DisplayingData(adapterMatcher, dataMatcher, adapterViewProtocol, resolvedLoad);
+  }
+
+  /**
+   * Remembers the view which rendered the loaded data, once the interaction resolved the data to
+   * exactly one view. Nothing is remembered if no view or several views were found.
+   */
+  private void rememberRenderedView(Matcher<View> target) {
+    if (target instanceof DisplayingData) {
+      Optional<View> view = ((DisplayingData) target).getOnlyMatch();
+      if (view.isPresent()) {
+        renderedView = new WeakReference<View>(view.get());
+      }
+    }
+  }
+
+  /**
+   * Returns true if the view is still attached and renders the loaded data, and the adapter view
+   * still shows that data in full (a row scrolled partly out of sight needs loading again).
+   */
+  @SuppressWarnings("unchecked")
+  private boolean isStillRendering(View view, AdapterDataLoaderAction adapterDataLoaderAction) {
+    if (null == view.getWindowToken()) {
+      return false;
+    }
+    ViewParent parent = view.getParent();
+    while (parent != null && !(parent instanceof AdapterView)) {
+      parent = parent.getParent();
+    }
+    if (parent == null || !adapterMatcher.matches(parent)) {
+      return false;
+    }
+    AdapterView<? extends Adapter> adapterView = (AdapterView<? extends Adapter>) parent;
+    AdaptedData adaptedData = adapterDataLoaderAction.getAdaptedData();
+    Optional<AdaptedData> data = adapterViewProtocol.getDataRenderedByView(adapterView, view);
+    return data.isPresent() && adaptedData.opaqueToken.equals(data.get().opaqueToken)
+        && adapterViewProtocol.isDataRenderedWithinAdapterView(adapterView, adaptedData);
   }
 
   private AdapterDataLoaderAction load() {
@@ -139,52 +228,92 @@ public class DataInteraction {
   }
 
   @SuppressWarnings("unchecked")
-  private Matcher<View> makeTargetMatcher(AdapterDataLoaderAction adapterDataLoaderAction) {
-    Matcher<View> targetView = displayingData(adapterMatcher, dataMatcher, adapterViewProtocol,
-        adapterDataLoaderAction);
+  private Matcher<View> makeTargetMatcher(Matcher<View> targetView) {
     if (childViewMatcher.isPresent()) {
       targetView = allOf(childViewMatcher.get(), isDescendantOfA(targetView));
     }
     return targetView;
   }
 
-  private Matcher<View> displayingData(
-      final Matcher<View> adapterMatcher,
-      final Matcher<Object> dataMatcher,
-      final AdapterViewProtocol adapterViewProtocol,
-      final AdapterDataLoaderAction adapterDataLoaderAction) {
-    checkNotNull(adapterMatcher);
-    checkNotNull(dataMatcher);
-    checkNotNull(adapterViewProtocol);
+  /**
+   * Matches the views rendering the loaded data within the adapter view. The views it matched are
+   * noted, so that the interaction's outcome can tell whether the data resolved to a single view.
+   */
+  private static final class DisplayingData extends TypeSafeMatcher<View> {
+    private final Matcher<View> adapterMatcher;
+    private final Matcher<Object> dataMatcher;
+    private final AdapterViewProtocol adapterViewProtocol;
+    private final AdapterDataLoaderAction adapterDataLoaderAction;
+    // guarded by this; views are matched on the main thread but read on the test thread.
+    private final Set<View> matchedViews = Sets.newSetFromMap(new WeakHashMap<View, Boolean>());
+
+    private DisplayingData(Matcher<View> adapterMatcher, Matcher<Object> dataMatcher,
+        AdapterViewProtocol adapterViewProtocol, AdapterDataLoaderAction adapterDataLoaderAction) {
+      this.adapterMatcher = checkNotNull(adapterMatcher);
+      this.dataMatcher = checkNotNull(dataMatcher);
+      this.adapterViewProtocol = checkNotNull(adapterViewProtocol);
+      this.adapterDataLoaderAction = checkNotNull(adapterDataLoaderAction);
+    }
+
+    @Override
+    public void describeTo(Description description) {
+      description.appendText(" displaying data matching: ");
+      dataMatcher.describeTo(description);
+      description.appendText(" within adapter view matching: ");
+      adapterMatcher.describeTo(description);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean matchesSafely(View view) {
+
+      ViewParent parent = view.getParent();
+
+      while (parent != null && !(parent instanceof AdapterView)) {
+        parent = parent.getParent();
+      }
+
+      if (parent != null && adapterMatcher.matches(parent)) {
+        Optional<AdaptedData> data = adapterViewProtocol.getDataRenderedByView(
+            (AdapterView<? extends Adapter>) parent, view);
+        if (data.isPresent() && adapterDataLoaderAction.getAdaptedData().opaqueToken.equals(
+            data.get().opaqueToken)) {
+          synchronized (this) {
+            matchedViews.add(view);
+          }
+          return true;
+        }
+      }
+      return false;
+    }
 
+    /**
+     * Returns the view this matcher matched, if it matched exactly one.
+     */
+    synchronized Optional<View> getOnlyMatch() {
+      return matchedViews.size() == 1
+          ? Optional.fromNullable(matchedViews.iterator().next()) : Optional.<View>absent();
+    }
+  }
+
+  /**
+   * Matches only the given view, and only while it still renders the loaded data. Unlike
+   * {@link DisplayingData} this costs a reference comparison for every other view.
+   */
+  private Matcher<View> stillRendering(final WeakReference<View> viewRef,
+      final AdapterDataLoaderAction adapterDataLoaderAction) {
     return new TypeSafeMatcher<View>() {
       @Override
       public void describeTo(Description description) {
-        description.appendText(" displaying data matching: ");
+        description.appendText(" still displaying data matching: ");
         dataMatcher.describeTo(description);
         description.appendText(" within adapter view matching: ");
         adapterMatcher.describeTo(description);
       }
 
-      @SuppressWarnings("unchecked")
       @Override
       public boolean matchesSafely(View view) {
-
-        ViewParent parent = view.getParent();
-
-        while (parent != null && !(parent instanceof AdapterView)) {
-          parent = parent.getParent();
-        }
-
-        if (parent != null && adapterMatcher.matches(parent)) {
-          Optional<AdaptedData> data = adapterViewProtocol.getDataRenderedByView(
-              (AdapterView<? extends Adapter>) parent, view);
-          if (data.isPresent()) {
-            return adapterDataLoaderAction.getAdaptedData().opaqueToken.equals(
-                data.get().opaqueToken);
-          }
-        }
-        return false;
+        return view == viewRef.get() && isStillRendering(view, adapterDataLoaderAction);
       }
     };
   }
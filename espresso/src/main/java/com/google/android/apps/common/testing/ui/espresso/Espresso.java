@@ -14,6 +14,8 @@ import static org.hamcrest.Matchers.endsWith;
 import com.google.android.apps.common.testing.ui.espresso.action.ViewActions;
 import com.google.android.apps.common.testing.ui.espresso.base.BaseLayerModule;
 import com.google.android.apps.common.testing.ui.espresso.base.IdlingResourceRegistry;
+import com.google.android.apps.common.testing.ui.espresso.base.InProcessEventInjectionStrategy;
+import com.google.android.apps.common.testing.ui.espresso.base.MainThreadExecutor;
 import com.google.android.apps.common.testing.ui.espresso.util.TreeIterables;
 
 import android.content.Context;
@@ -48,7 +50,24 @@ public final class Espresso {
    * @see #onData
    */
   public static ViewInteraction onView(final Matcher<View> viewMatcher) {
-    return espressoGraph().plus(new ViewInteractionModule(viewMatcher)).get(ViewInteraction.class);
+    return GraphHolder.viewInteractionFactory().create(viewMatcher);
+  }
+
+  /**
+   * Creates an empty {@link ViewCheckBatch}. Checks added to it are run together, in a single
+   * round trip to the main thread, which is much cheaper than checking each view with onView when
+   * verifying many views of the same screen.
+   */
+  public static ViewCheckBatch checkBatch() {
+    return GraphHolder.viewInteractionFactory().createCheckBatch();
+  }
+
+  /**
+   * Creates an empty {@link InteractionSequence}. Its actions and assertions are run in order, in a
+   * single round trip to the main thread, waiting for the application to idle only after actions.
+   */
+  public static InteractionSequence sequence() {
+    return GraphHolder.viewInteractionFactory().createSequence();
   }
 
 
@@ -111,6 +130,23 @@ public final class Espresso {
         .update(checkNotNull(failureHandler));
   }
 
+  /**
+   * Enables or disables posting Espresso's main thread tasks at the front of the main queue, ahead
+   * of any backlog of application messages. Disabled by default. See {@link MainThreadExecutor}.
+   */
+  public static void setMainThreadPriority(boolean priorityMode) {
+    espressoGraph().get(MainThreadExecutor.class).setPriorityMode(priorityMode);
+  }
+
+  /**
+   * Enables or disables dispatching events meant for the application's own windows directly into
+   * their view hierarchies, rather than injecting them through the system. Disabled by default.
+   * See {@link InProcessEventInjectionStrategy} for when not to enable it.
+   */
+  public static void setInProcessEventDispatch(boolean enabled) {
+    espressoGraph().get(InProcessEventInjectionStrategy.class).setEnabled(enabled);
+  }
+
   /********************************** Top Level Actions ******************************************/
 
   // Ideally, this should be only allOf(isDisplayed(), withContentDescription("More options"))
@@ -6,6 +6,7 @@ import static com.google.common.base.Preconditions.checkState;
 import com.google.android.apps.common.testing.testrunner.UsageTrackerRegistry;
 import com.google.android.apps.common.testing.ui.espresso.base.BaseLayerModule;
 import com.google.android.apps.common.testing.ui.espresso.base.IdlingResourceRegistry;
+import com.google.android.apps.common.testing.ui.espresso.util.ResourceResolver;
 
 import dagger.Module;
 import dagger.ObjectGraph;
@@ -21,6 +22,8 @@ public final class GraphHolder {
       new AtomicReference<GraphHolder>(null);
 
   private final ObjectGraph graph;
+  private volatile ViewInteractionFactory interactionFactory;
+  private volatile ResourceResolver resourceResolver;
 
   private GraphHolder(ObjectGraph graph) {
     this.graph = checkNotNull(graph);
@@ -41,20 +44,53 @@ public final class GraphHolder {
     }
   }
 
+  static ViewInteractionFactory viewInteractionFactory() {
+    graph();
+    GraphHolder instanceRef = instance.get();
+    ViewInteractionFactory factory = instanceRef.interactionFactory;
+    if (null == factory) {
+      // the factory is a singleton of the graph, racing callers end up with the same instance.
+      factory = instanceRef.graph.get(ViewInteractionFactory.class);
+      instanceRef.interactionFactory = factory;
+    }
+    return factory;
+  }
+
+  /**
+   * Returns the graph's {@link ResourceResolver}, for the static matcher factories and
+   * HumanReadables which are not injected. Modules given to {@link #initialize} may replace it.
+   */
+  public static ResourceResolver resourceResolver() {
+    graph();
+    GraphHolder instanceRef = instance.get();
+    ResourceResolver resolver = instanceRef.resourceResolver;
+    if (null == resolver) {
+      // a singleton of the graph as well, racing callers end up with the same instance.
+      resolver = instanceRef.graph.get(ResourceResolver.class);
+      instanceRef.resourceResolver = resolver;
+    }
+    return resolver;
+  }
+
   // moe:begin_strip
+  /**
+   * Builds the Espresso graph with the given modules added, which may override its bindings. Must
+   * be called before the first interaction. Root view pickers and view finders are created by
+   * {@link ViewInteractionFactory} and cannot be overridden.
+   */
   public static void initialize(Object... modules) {
     checkNotNull(modules);
     Object[] allModules = new Object[modules.length + 1];
     allModules[0] = EspressoModule.class;
     System.arraycopy(modules, 0, allModules, 1, modules.length);
-    GraphHolder holder = new GraphHolder(ObjectGraph.create(modules));
+    GraphHolder holder = new GraphHolder(ObjectGraph.create(allModules));
     checkState(instance.compareAndSet(null, holder), "Espresso already initialized.");
   }
   // moe:end_strip
 
   @Module(
     includes = BaseLayerModule.class,
-    injects = IdlingResourceRegistry.class
+    injects = {IdlingResourceRegistry.class, ViewInteractionFactory.class}
   )
   static class EspressoModule {
   }
@@ -0,0 +1,217 @@
+package com.google.android.apps.common.testing.ui.espresso;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.android.apps.common.testing.ui.espresso.base.MainThread;
+import com.google.android.apps.common.testing.ui.espresso.base.ViewFinderImpl;
+import com.google.android.apps.common.testing.ui.espresso.matcher.RootMatchers;
+import com.google.android.apps.common.testing.ui.espresso.matcher.ViewQueryScope;
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+
+import android.util.Log;
+import android.view.View;
+
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Provider;
+
+/**
+ * A recorded series of view actions and assertions, run in a single round trip to the main
+ * thread.
+ * <p>
+ * Interacting through {@link ViewInteraction} blocks the test thread on the main thread and waits
+ * for the application to idle before every single step. A sequence runs all of its steps in one
+ * main thread task, in the order they were added, and only waits for the application to idle
+ * where the previous step could have given it work to do: before the first step and after every
+ * action. Consecutive assertions share a single idle sync.
+ * </p>
+ * <p>
+ * The sequence stops at the first failing step. The failure is reported to the
+ * {@link FailureHandler} as the step itself would have reported it; the view matcher passed along
+ * identifies the failing step (e.g. "step 3 of 7: with id: 42").
+ * </p>
+ * <pre>
+ * {@code
+ *   sequence()
+ *       .perform(withId(R.id.name), typeText("Jane"))
+ *       .perform(withId(R.id.next), click())
+ *       .check(withId(R.id.greeting), matches(withText("Hello Jane")))
+ *       .run();
+ * }
+ * </pre>
+ */
+public final class InteractionSequence {
+
+  private static final String TAG = InteractionSequence.class.getSimpleName();
+
+  private final UiController uiController;
+  private final Executor mainThreadExecutor;
+  private final FailureHandler failureHandler;
+  private final AtomicReference<Matcher<Root>> rootMatcherRef;
+  private final Provider<View> rootViewProvider;
+  private final List<Step> steps = Lists.newArrayList();
+  private Matcher<Root> rootMatcher = RootMatchers.DEFAULT;
+
+  InteractionSequence(
+      UiController uiController,
+      @MainThread Executor mainThreadExecutor,
+      FailureHandler failureHandler,
+      AtomicReference<Matcher<Root>> rootMatcherRef,
+      Provider<View> rootViewProvider) {
+    this.uiController = checkNotNull(uiController);
+    this.mainThreadExecutor = checkNotNull(mainThreadExecutor);
+    this.failureHandler = checkNotNull(failureHandler);
+    this.rootMatcherRef = checkNotNull(rootMatcherRef);
+    this.rootViewProvider = checkNotNull(rootViewProvider);
+  }
+
+  /**
+   * Adds steps performing the given action(s), in order, on the view selected by the view matcher.
+   *
+   * @return this sequence, for adding further steps.
+   */
+  public InteractionSequence perform(Matcher<View> viewMatcher, ViewAction... viewActions) {
+    checkNotNull(viewMatcher);
+    checkNotNull(viewActions);
+    for (ViewAction viewAction : viewActions) {
+      steps.add(new Step(viewMatcher, rootMatcher, checkNotNull(viewAction), null));
+    }
+    return this;
+  }
+
+  /**
+   * Adds a step checking the given assertion on the view selected by the view matcher.
+   *
+   * @return this sequence, for adding further steps.
+   */
+  public InteractionSequence check(Matcher<View> viewMatcher, ViewAssertion viewAssert) {
+    steps.add(new Step(checkNotNull(viewMatcher), rootMatcher, null, checkNotNull(viewAssert)));
+    return this;
+  }
+
+  /**
+   * Scopes the steps added after this call to the root selected by the given root matcher.
+   */
+  public InteractionSequence inRoot(Matcher<Root> rootMatcher) {
+    this.rootMatcher = checkNotNull(rootMatcher);
+    return this;
+  }
+
+  /**
+   * Runs all the steps of this sequence, stopping at the first one that fails.
+   */
+  public void run() {
+    checkState(!steps.isEmpty(), "No steps were added to this sequence.");
+    final AtomicReference<Integer> failedStep = new AtomicReference<Integer>();
+    Runnable uiTask = new Runnable() {
+      @Override
+      public void run() {
+        boolean mayHaveWork = true;
+        for (int i = 0; i < steps.size(); i++) {
+          failedStep.set(i);
+          if (mayHaveWork) {
+            uiController.loopMainThreadUntilIdle();
+          }
+          runStep(steps.get(i));
+          // an action can post work to the main thread, an assertion cannot.
+          mayHaveWork = null != steps.get(i).viewAction;
+        }
+        failedStep.set(null);
+      }
+    };
+    Throwable failure;
+    try {
+      failure = MainThreadHandoff.forCurrentThread().runAndWait(mainThreadExecutor, uiTask);
+    } catch (InterruptedException ie) {
+      throw new RuntimeException("Interrupted running UI task", ie);
+    }
+    if (null != failure) {
+      int stepIndex = failedStep.get();
+      Matcher<View> stepMatcher = new StepMatcher(
+          steps.get(stepIndex).viewMatcher, stepIndex + 1, steps.size());
+      Log.e(TAG, String.format("Failed at %s", stepMatcher));
+      failureHandler.handle(failure, stepMatcher);
+    }
+  }
+
+  private void runStep(Step step) {
+    rootMatcherRef.set(step.rootMatcher);
+    View root = rootViewProvider.get();
+    ViewQueryScope scope = ViewQueryScope.begin();
+    if (null != step.viewAction) {
+      View targetView;
+      boolean constraintsMet;
+      try {
+        targetView = ViewFinderImpl.findView(step.viewMatcher, root);
+        constraintsMet = step.viewAction.getConstraints().matches(targetView);
+      } finally {
+        scope.end();
+      }
+      ViewInteraction.performOnView(
+          uiController, step.viewMatcher, step.viewAction, targetView, constraintsMet);
+    } else {
+      try {
+        Optional<View> targetView = Optional.absent();
+        Optional<NoMatchingViewException> missingViewException = Optional.absent();
+        try {
+          targetView = Optional.of(ViewFinderImpl.findView(step.viewMatcher, root));
+        } catch (NoMatchingViewException nsve) {
+          missingViewException = Optional.of(nsve);
+        }
+        step.viewAssert.check(targetView, missingViewException);
+      } finally {
+        scope.end();
+      }
+    }
+  }
+
+  private static final class Step {
+    private final Matcher<View> viewMatcher;
+    private final Matcher<Root> rootMatcher;
+    // exactly one of viewAction and viewAssert is set.
+    private final ViewAction viewAction;
+    private final ViewAssertion viewAssert;
+
+    private Step(Matcher<View> viewMatcher, Matcher<Root> rootMatcher, ViewAction viewAction,
+        ViewAssertion viewAssert) {
+      this.viewMatcher = viewMatcher;
+      this.rootMatcher = rootMatcher;
+      this.viewAction = viewAction;
+      this.viewAssert = viewAssert;
+    }
+  }
+
+  /**
+   * Matches like the step's view matcher, but tells which step of the sequence it belongs to.
+   */
+  private static final class StepMatcher extends BaseMatcher<View> {
+    private final Matcher<View> viewMatcher;
+    private final int step;
+    private final int stepCount;
+
+    private StepMatcher(Matcher<View> viewMatcher, int step, int stepCount) {
+      this.viewMatcher = viewMatcher;
+      this.step = step;
+      this.stepCount = stepCount;
+    }
+
+    @Override
+    public boolean matches(Object item) {
+      return viewMatcher.matches(item);
+    }
+
+    @Override
+    public void describeTo(Description description) {
+      description.appendText(String.format("step %s of %s: ", step, stepCount))
+          .appendDescriptionOf(viewMatcher);
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.google.android.apps.common.testing.ui.espresso;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands a task over to the main thread and waits for it, without allocating per round trip.
+ * <p>
+ * Every synchronous interaction used to allocate a FutureTask and park the test thread in it. Each
+ * test thread instead owns one handoff that is reused for all of its interactions. While waiting,
+ * the test thread spins for a few microseconds before parking, since short tasks (e.g. checks on an
+ * idle application) often complete within that window and spare the thread a wake up.
+ * </p>
+ */
+final class MainThreadHandoff implements Runnable {
+
+  private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+  private static final boolean SPIN = Runtime.getRuntime().availableProcessors() > 1;
+
+  private static final ThreadLocal<MainThreadHandoff> HANDOFFS =
+      new ThreadLocal<MainThreadHandoff>() {
+        @Override
+        protected MainThreadHandoff initialValue() {
+          return new MainThreadHandoff(Thread.currentThread());
+        }
+      };
+
+  private final Thread waiter;
+  private Runnable task;
+  private Throwable failure;
+  private volatile boolean done;
+
+  private MainThreadHandoff(Thread waiter) {
+    this.waiter = waiter;
+  }
+
+  /**
+   * Returns the handoff of the calling thread.
+   */
+  static MainThreadHandoff forCurrentThread() {
+    return HANDOFFS.get();
+  }
+
+  /**
+   * Runs the task on the given executor and waits for it to complete.
+   *
+   * @return whatever the task threw, or null if it completed normally.
+   * @throws InterruptedException if the calling thread was interrupted while waiting. The task may
+   *     still run afterwards.
+   */
+  Throwable runAndWait(Executor executor, Runnable task) throws InterruptedException {
+    checkState(Thread.currentThread() == waiter, "Handoff used from the wrong thread.");
+    checkState(null == this.task, "Handoff already in use.");
+    this.task = checkNotNull(task);
+    failure = null;
+    done = false;
+    executor.execute(this);
+
+    long spinDeadline = SPIN ? System.nanoTime() + SPIN_NANOS : 0;
+    while (!done) {
+      if (SPIN && System.nanoTime() < spinDeadline) {
+        continue;
+      }
+      LockSupport.park(this);
+      if (Thread.interrupted()) {
+        // the task is still queued and will complete into this handoff, don't reuse it.
+        HANDOFFS.remove();
+        throw new InterruptedException();
+      }
+    }
+    // reading done made the writes of the main thread visible.
+    Throwable result = failure;
+    this.task = null;
+    failure = null;
+    return result;
+  }
+
+  @Override
+  public void run() {
+    try {
+      task.run();
+    } catch (Throwable t) {
+      failure = t;
+    } finally {
+      done = true;
+      LockSupport.unpark(waiter);
+    }
+  }
+}
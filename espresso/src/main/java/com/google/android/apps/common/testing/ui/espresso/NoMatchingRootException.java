@@ -12,14 +12,24 @@ import java.util.List;
  */
 public final class NoMatchingRootException extends RuntimeException implements EspressoException {
 
-  private NoMatchingRootException(String description) {
-    super(description);
+  private final Matcher<Root> rootMatcher;
+  private final List<Root> roots;
+
+  private NoMatchingRootException(Matcher<Root> rootMatcher, List<Root> roots) {
+    this.rootMatcher = rootMatcher;
+    this.roots = roots;
   }
 
   public static NoMatchingRootException create(Matcher<Root> rootMatcher, List<Root> roots) {
     checkNotNull(rootMatcher);
     checkNotNull(roots);
-    return new NoMatchingRootException(String.format(
-        "Matcher '%s' did not match any of the following roots: %s", rootMatcher, roots));
+    return new NoMatchingRootException(rootMatcher, roots);
+  }
+
+  // describing every root is costly, and callers merely probing for a root never ask.
+  @Override
+  public String getMessage() {
+    return String.format(
+        "Matcher '%s' did not match any of the following roots: %s", rootMatcher, roots);
   }
 }
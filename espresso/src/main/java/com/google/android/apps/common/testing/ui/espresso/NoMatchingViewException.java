@@ -34,6 +34,7 @@ public final class NoMatchingViewException extends RuntimeException implements E
   private List<View> adapterViews = Lists.newArrayList();
   private boolean includeViewHierarchy = true;
   private Optional<String> adapterViewWarning = Optional.<String>absent();
+  private Optional<String> message = Optional.<String>absent();
 
   private NoMatchingViewException(String description) {
     super(description);
@@ -45,6 +46,7 @@ public final class NoMatchingViewException extends RuntimeException implements E
     this.rootView = builder.rootView;
     this.adapterViews = builder.adapterViews;
     this.adapterViewWarning = builder.adapterViewWarning;
+    this.message = builder.message;
     this.includeViewHierarchy = builder.includeViewHierarchy;
   }
 
@@ -53,13 +55,15 @@ public final class NoMatchingViewException extends RuntimeException implements E
     if (builder.includeViewHierarchy) {
       Optional<List<View>> problemViews = Optional.absent();
       Optional<String> problemViewSuffix = Optional.absent();
-      String message = String.format("No views in hierarchy found matching: %s",
-          builder.viewMatcher);
+      String message = builder.message.isPresent() ? builder.message.get()
+          : String.format("No views in hierarchy found matching: %s", builder.viewMatcher);
       if (builder.adapterViewWarning.isPresent()) {
         message = message + builder.adapterViewWarning.get();
       }
       errorMessage = HumanReadables.getViewHierarchyErrorMessage(builder.rootView, problemViews,
           message, problemViewSuffix);
+    } else if (builder.message.isPresent()) {
+      errorMessage = builder.message.get();
     } else {
       errorMessage = String.format("Could not find a view that matches %s" , builder.viewMatcher);
     }
@@ -74,12 +78,14 @@ public final class NoMatchingViewException extends RuntimeException implements E
     private List<View> adapterViews = Lists.newArrayList();
     private boolean includeViewHierarchy = true;
     private Optional<String> adapterViewWarning = Optional.<String>absent();
+    private Optional<String> message = Optional.<String>absent();
 
     public Builder from(NoMatchingViewException exception) {
       this.viewMatcher = exception.viewMatcher;
       this.rootView = exception.rootView;
       this.adapterViews = exception.adapterViews;
       this.adapterViewWarning = exception.adapterViewWarning;
+      this.message = exception.message;
       this.includeViewHierarchy = exception.includeViewHierarchy;
       return this;
     }
@@ -109,6 +115,15 @@ public final class NoMatchingViewException extends RuntimeException implements E
       return this;
     }
 
+    /**
+     * Replaces the default headline of the message, for lookups which failed for another reason
+     * than the matcher matching no view at all.
+     */
+    public Builder withMessage(String message) {
+      this.message = Optional.of(message);
+      return this;
+    }
+
     public NoMatchingViewException build() {
       checkNotNull(viewMatcher);
       checkNotNull(rootView);
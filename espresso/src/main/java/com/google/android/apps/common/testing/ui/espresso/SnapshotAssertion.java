@@ -0,0 +1,28 @@
+package com.google.android.apps.common.testing.ui.espresso;
+
+import com.google.android.apps.common.testing.ui.espresso.matcher.HierarchySnapshot;
+
+/**
+ * A {@link ViewAssertion} that can also be evaluated against a {@link HierarchySnapshot}, off the
+ * main thread (see {@link ViewInteraction#checkOnSnapshot}).
+ * <p>
+ * Implementations must be thread safe and give the same answer as {@link #check} would have given
+ * for the live hierarchy at the time the snapshot was captured. They only need to decide whether
+ * the assertion holds: failures are reported by running {@link #check} on the live hierarchy.
+ * </p>
+ */
+public interface SnapshotAssertion extends ViewAssertion {
+
+  /**
+   * Returns true if this assertion, and every matcher it uses, can be evaluated against a snapshot.
+   */
+  boolean canCheckSnapshot();
+
+  /**
+   * Returns true if the assertion holds.
+   *
+   * @param snapshot the hierarchy the view was looked up in
+   * @param index the index of the view in the snapshot, or -1 if no view was found
+   */
+  boolean holdsInSnapshot(HierarchySnapshot snapshot, int index);
+}
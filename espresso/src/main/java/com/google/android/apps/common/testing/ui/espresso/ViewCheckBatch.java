@@ -0,0 +1,172 @@
+package com.google.android.apps.common.testing.ui.espresso;
+
+import static com.google.android.apps.common.testing.ui.espresso.util.TreeIterables.breadthFirstViewTraversal;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.android.apps.common.testing.ui.espresso.base.MainThread;
+import com.google.android.apps.common.testing.ui.espresso.base.ViewFinderImpl;
+import com.google.android.apps.common.testing.ui.espresso.matcher.ViewQueryScope;
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+
+import android.view.View;
+
+import org.hamcrest.Matcher;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Provider;
+
+/**
+ * Checks many views at once.
+ * <p>
+ * Each {@link ViewInteraction#check} waits for the application to idle, looks its view up and
+ * blocks until the main thread has run the assertion. A batch does all of that once for every
+ * check added to it: after a single idle sync, all view matchers are resolved in one traversal of
+ * the hierarchy and all assertions run in the same main thread task. Every check is run even if
+ * earlier ones fail, and all failures are reported together.
+ * </p>
+ * <pre>
+ * {@code
+ *   checkBatch()
+ *       .add(withId(R.id.title), matches(withText("Hello")))
+ *       .add(withId(R.id.progress), doesNotExist())
+ *       .check();
+ * }
+ * </pre>
+ */
+public final class ViewCheckBatch {
+
+  private final UiController uiController;
+  private final Executor mainThreadExecutor;
+  private final FailureHandler failureHandler;
+  private final AtomicReference<Matcher<Root>> rootMatcherRef;
+  private final Provider<View> rootViewProvider;
+  private final List<Matcher<View>> viewMatchers = Lists.newArrayList();
+  private final List<ViewAssertion> viewAssertions = Lists.newArrayList();
+
+  ViewCheckBatch(
+      UiController uiController,
+      @MainThread Executor mainThreadExecutor,
+      FailureHandler failureHandler,
+      AtomicReference<Matcher<Root>> rootMatcherRef,
+      Provider<View> rootViewProvider) {
+    this.uiController = checkNotNull(uiController);
+    this.mainThreadExecutor = checkNotNull(mainThreadExecutor);
+    this.failureHandler = checkNotNull(failureHandler);
+    this.rootMatcherRef = checkNotNull(rootMatcherRef);
+    this.rootViewProvider = checkNotNull(rootViewProvider);
+  }
+
+  /**
+   * Adds a check of the given assertion on the view selected by the given view matcher.
+   *
+   * @return this batch, for adding further checks.
+   */
+  public ViewCheckBatch add(Matcher<View> viewMatcher, ViewAssertion viewAssert) {
+    viewMatchers.add(checkNotNull(viewMatcher));
+    viewAssertions.add(checkNotNull(viewAssert));
+    return this;
+  }
+
+  /**
+   * Makes all the checks of this batch scoped to the root selected by the given root matcher.
+   */
+  public ViewCheckBatch inRoot(Matcher<Root> rootMatcher) {
+    this.rootMatcherRef.set(checkNotNull(rootMatcher));
+    return this;
+  }
+
+  /**
+   * Runs all the checks added to this batch. If exactly one of them fails, its failure is reported
+   * to the {@link FailureHandler} just as {@link ViewInteraction#check} would have reported it. If
+   * several fail, they are reported together as a {@link ViewCheckBatchException}.
+   */
+  public void check() {
+    checkState(!viewMatchers.isEmpty(), "No checks were added to this batch.");
+    final List<Throwable> failures = Lists.newArrayList();
+    final List<Matcher<View>> failedMatchers = Lists.newArrayList();
+    Runnable uiTask = new Runnable() {
+      @Override
+      public void run() {
+        uiController.loopMainThreadUntilIdle();
+        View root = rootViewProvider.get();
+        // assertions must not mutate views, so every lookup and assertion can share the scope.
+        ViewQueryScope scope = ViewQueryScope.begin();
+        try {
+          List<List<View>> matchedViews = findAll(root);
+          for (int i = 0; i < viewMatchers.size(); i++) {
+            try {
+              checkOne(root, viewMatchers.get(i), matchedViews.get(i), viewAssertions.get(i));
+            } catch (RuntimeException re) {
+              failures.add(re);
+              failedMatchers.add(viewMatchers.get(i));
+            } catch (Error e) {
+              failures.add(e);
+              failedMatchers.add(viewMatchers.get(i));
+            }
+          }
+        } finally {
+          scope.end();
+        }
+      }
+    };
+    Throwable rootFailure;
+    try {
+      rootFailure = MainThreadHandoff.forCurrentThread().runAndWait(mainThreadExecutor, uiTask);
+    } catch (InterruptedException ie) {
+      throw new RuntimeException("Interrupted running UI task", ie);
+    }
+    if (null != rootFailure) {
+      // the lookup of the root failed, none of the checks could run.
+      failureHandler.handle(rootFailure, viewMatchers.get(0));
+      return;
+    }
+
+    if (failures.size() == 1) {
+      failureHandler.handle(failures.get(0), failedMatchers.get(0));
+    } else if (failures.size() > 1) {
+      failureHandler.handle(new ViewCheckBatchException(failures, viewMatchers.size()),
+          failedMatchers.get(0));
+    }
+  }
+
+  /**
+   * Returns, for every view matcher, the views it matches - all in a single traversal.
+   */
+  private List<List<View>> findAll(View root) {
+    List<List<View>> matchedViews = Lists.newArrayList();
+    for (int i = 0; i < viewMatchers.size(); i++) {
+      matchedViews.add(Lists.<View>newArrayList());
+    }
+    for (View view : breadthFirstViewTraversal(root)) {
+      for (int i = 0; i < viewMatchers.size(); i++) {
+        if (viewMatchers.get(i).matches(view)) {
+          matchedViews.get(i).add(view);
+        }
+      }
+    }
+    return matchedViews;
+  }
+
+  private static void checkOne(View root, Matcher<View> viewMatcher, List<View> matchedViews,
+      ViewAssertion viewAssert) {
+    if (matchedViews.size() == 1) {
+      viewAssert.check(Optional.of(matchedViews.get(0)),
+          Optional.<NoMatchingViewException>absent());
+      return;
+    }
+    RuntimeException lookupException =
+        ViewFinderImpl.getLookupException(viewMatcher, root, matchedViews);
+    if (lookupException instanceof NoMatchingViewException) {
+      viewAssert.check(Optional.<View>absent(),
+          Optional.of((NoMatchingViewException) lookupException));
+    } else {
+      // ambiguous matches fail the check, just like in ViewInteraction.
+      throw lookupException;
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.google.android.apps.common.testing.ui.espresso;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Indicates that more than one of the checks of a {@link ViewCheckBatch} failed.
+ * <p>
+ * The message lists every failure; the first one is also the cause of this exception.
+ * </p>
+ */
+public final class ViewCheckBatchException extends RuntimeException implements EspressoException {
+
+  private final List<Throwable> failures;
+
+  ViewCheckBatchException(List<Throwable> failures, int checkCount) {
+    super(getErrorMessage(failures, checkCount), failures.isEmpty() ? null : failures.get(0));
+    checkArgument(failures.size() > 1, "Use the failure itself when only one check failed.");
+    this.failures = ImmutableList.copyOf(failures);
+  }
+
+  private static String getErrorMessage(List<Throwable> failures, int checkCount) {
+    StringBuilder message = new StringBuilder(
+        String.format("%s of %s checks failed:", failures.size(), checkCount));
+    for (int i = 0; i < failures.size(); i++) {
+      Throwable failure = failures.get(i);
+      message.append(String.format("\n\n[%s] %s: %s", i + 1, failure.getClass().getSimpleName(),
+          failure.getMessage()));
+    }
+    return message.toString();
+  }
+
+  /**
+   * Returns the failures of the individual checks, in the order the checks were added.
+   */
+  public List<Throwable> getFailures() {
+    return failures;
+  }
+}
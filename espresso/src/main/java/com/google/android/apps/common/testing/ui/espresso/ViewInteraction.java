@@ -2,12 +2,21 @@ package com.google.android.apps.common.testing.ui.espresso;
 
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isAssignableFrom;
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isDescendantOfA;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.android.apps.common.testing.ui.espresso.action.ScrollToAction;
 import com.google.android.apps.common.testing.ui.espresso.base.MainThread;
+import com.google.android.apps.common.testing.ui.espresso.base.ViewFinderImpl;
+import com.google.android.apps.common.testing.ui.espresso.matcher.HierarchySnapshot;
+import com.google.android.apps.common.testing.ui.espresso.matcher.SnapshotMatcher;
+import com.google.android.apps.common.testing.ui.espresso.matcher.ViewQueryScope;
 import com.google.android.apps.common.testing.ui.espresso.util.HumanReadables;
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ForwardingListenableFuture;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 
 import android.util.Log;
 import android.view.View;
@@ -16,12 +25,16 @@ import android.widget.AdapterView;
 import org.hamcrest.Matcher;
 import org.hamcrest.StringDescription;
 
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
+import javax.inject.Provider;
 
 /**
  * Provides the primary interface for test authors to perform actions or asserts on views.
@@ -42,6 +55,9 @@ public final class ViewInteraction {
   private final FailureHandler failureHandler;
   private final Matcher<View> viewMatcher;
   private final AtomicReference<Matcher<Root>> rootMatcherRef;
+  private final Provider<View> rootViewProvider;
+  // the index of the match to select, or -1 if the match must be unique.
+  private volatile int matchIndex = -1;
 
   @Inject
   ViewInteraction(
@@ -50,13 +66,15 @@ public final class ViewInteraction {
       @MainThread Executor mainThreadExecutor,
       FailureHandler failureHandler,
       Matcher<View> viewMatcher,
-      AtomicReference<Matcher<Root>> rootMatcherRef) {
+      AtomicReference<Matcher<Root>> rootMatcherRef,
+      Provider<View> rootViewProvider) {
     this.viewFinder = checkNotNull(viewFinder);
     this.uiController = checkNotNull(uiController);
     this.failureHandler = checkNotNull(failureHandler);
     this.mainThreadExecutor = checkNotNull(mainThreadExecutor);
     this.viewMatcher = checkNotNull(viewMatcher);
     this.rootMatcherRef = checkNotNull(rootMatcherRef);
+    this.rootViewProvider = checkNotNull(rootViewProvider);
   }
 
   /**
@@ -69,12 +87,44 @@ public final class ViewInteraction {
    */
   public ViewInteraction perform(final ViewAction... viewActions) {
     checkNotNull(viewActions);
+    AtomicReference<View> resolvedView = new AtomicReference<View>();
     for (ViewAction action : viewActions) {
-      doPerform(action);
+      runSynchronouslyOnUiThread(performTask(action, resolvedView));
     }
     return this;
   }
 
+  /**
+   * Performs the given action(s) like {@link #perform} does, but without blocking the calling
+   * thread. Interactions still run on the main thread strictly in the order they were requested,
+   * so the test can prepare its next steps while this one runs.
+   * <p>
+   * The returned future completes once all the actions were performed. Awaiting it with
+   * {@code get} reports a failure to the {@link FailureHandler}, just as {@link #perform} would,
+   * instead of throwing an {@link ExecutionException}. Failures are not reported if the future is
+   * never awaited. Actions after a failed one are not performed.
+   * </p>
+   *
+   * @param viewActions one or more actions to execute.
+   * @return a future for the completion of the actions.
+   */
+  public ListenableFuture<Void> performAsync(final ViewAction... viewActions) {
+    checkNotNull(viewActions);
+    final List<Runnable> tasks = Lists.newArrayList();
+    AtomicReference<View> resolvedView = new AtomicReference<View>();
+    for (ViewAction action : viewActions) {
+      tasks.add(performTask(action, resolvedView));
+    }
+    return runAsynchronouslyOnUiThread(new Runnable() {
+      @Override
+      public void run() {
+        for (Runnable task : tasks) {
+          task.run();
+        }
+      }
+    });
+  }
+
 
   /**
    * Makes this ViewInteraction scoped to the root selected by the given root matcher.
@@ -84,42 +134,121 @@ public final class ViewInteraction {
     return this;
   }
 
-  private void doPerform(final ViewAction viewAction) {
+  /**
+   * Makes this ViewInteraction select the first view, in breadth first order, matched by the
+   * current view matcher instead of requiring the match to be unique. The lookup stops at that
+   * view.
+   */
+  public ViewInteraction first() {
+    return atIndex(0);
+  }
+
+  /**
+   * Makes this ViewInteraction select the view at the given index, in breadth first order, among
+   * the views matched by the current view matcher instead of requiring the match to be unique.
+   * The lookup stops at that view.
+   */
+  public ViewInteraction atIndex(int index) {
+    checkArgument(index >= 0, "index must be positive: %s", index);
+    this.matchIndex = index;
+    return this;
+  }
+
+  // the actions of a single perform call share resolvedView, the target the first one looked up.
+  private Runnable performTask(final ViewAction viewAction,
+      final AtomicReference<View> resolvedView) {
     checkNotNull(viewAction);
     final Matcher<? extends View> constraints = checkNotNull(viewAction.getConstraints());
-    runSynchronouslyOnUiThread(new Runnable() {
+    return new Runnable() {
 
       @Override
       public void run() {
         uiController.loopMainThreadUntilIdle();
-        View targetView = viewFinder.getView();
-        Log.i(TAG, String.format(
-            "Performing '%s' action on view %s", viewAction.getDescription(), viewMatcher));
-        if (!constraints.matches(targetView)) {
-          // TODO(user): update this to describeMismatch once hamcrest is updated to new
-          StringDescription stringDescription = new StringDescription(new StringBuilder(
-              "Action will not be performed because the target view "
-              + "does not match one or more of the following constraints:\n"));
-          constraints.describeTo(stringDescription);
-          stringDescription.appendText("\nTarget view: ")
-              .appendValue(HumanReadables.describe(targetView));
-
-          if (viewAction instanceof ScrollToAction
-              && isDescendantOfA(isAssignableFrom((AdapterView.class))).matches(targetView)) {
-            stringDescription.appendText(
-                "\nFurther Info: ScrollToAction on a view inside an AdapterView will not work. "
-                + "Use Espresso.onData to load the view.");
-          }
-          throw new PerformException.Builder()
-            .withActionDescription(viewAction.getDescription())
-            .withViewDescription(viewMatcher.toString())
-            .withCause(new RuntimeException(stringDescription.toString()))
-            .build();
-        } else {
-          viewAction.perform(uiController, targetView);
+        View targetView;
+        boolean constraintsMet;
+        // the lookup and the constraint check share matcher results and view geometry.
+        ViewQueryScope scope = ViewQueryScope.begin();
+        try {
+          targetView = findTargetView(resolvedView);
+          constraintsMet = constraints.matches(targetView);
+        } finally {
+          scope.end();
         }
+        performOnView(uiController, viewMatcher, viewAction, targetView, constraintsMet);
+      }
+    };
+  }
+
+  /**
+   * Performs the action on the target view, or fails with a {@link PerformException} if the view
+   * did not meet the action's constraints. Must be called on the main thread.
+   */
+  static void performOnView(UiController uiController, Matcher<View> viewMatcher,
+      ViewAction viewAction, View targetView, boolean constraintsMet) {
+    Log.i(TAG, String.format(
+        "Performing '%s' action on view %s", viewAction.getDescription(), viewMatcher));
+    if (!constraintsMet) {
+      // TODO(user): update this to describeMismatch once hamcrest is updated to new
+      StringDescription stringDescription = new StringDescription(new StringBuilder(
+          "Action will not be performed because the target view "
+          + "does not match one or more of the following constraints:\n"));
+      viewAction.getConstraints().describeTo(stringDescription);
+      stringDescription.appendText("\nTarget view: ")
+          .appendValue(HumanReadables.describe(targetView));
+
+      if (viewAction instanceof ScrollToAction
+          && isDescendantOfA(isAssignableFrom((AdapterView.class))).matches(targetView)) {
+        stringDescription.appendText(
+            "\nFurther Info: ScrollToAction on a view inside an AdapterView will not work. "
+            + "Use Espresso.onData to load the view.");
+      }
+      throw new PerformException.Builder()
+        .withActionDescription(viewAction.getDescription())
+        .withViewDescription(viewMatcher.toString())
+        .withCause(new RuntimeException(stringDescription.toString()))
+        .build();
+    } else {
+      viewAction.perform(uiController, targetView);
+    }
+  }
+
+  /**
+   * Returns whether the view selected by the current view matcher exists, i.e. whether the matcher
+   * matches any view (or, after {@link #atIndex}, enough views). Unlike checking doesNotExist or
+   * catching {@link NoMatchingViewException}, a miss costs no more than a hit: the hierarchy is
+   * traversed once, stopping at the match, and no failure description is built. If no root matches
+   * the root matcher (e.g. inRoot(isDialog()) while no dialog is shown), the view does not exist.
+   */
+  public boolean exists() {
+    final int required = Math.max(matchIndex, 0) + 1;
+    return countMatches(required) == required;
+  }
+
+  /**
+   * Returns the number of views matched by the current view matcher, in a single traversal of the
+   * hierarchy. Returns 0 if no root matches the root matcher.
+   */
+  public int count() {
+    return countMatches(Integer.MAX_VALUE);
+  }
+
+  private int countMatches(final int limit) {
+    final AtomicInteger matchCount = new AtomicInteger();
+    runSynchronouslyOnUiThread(new Runnable() {
+      @Override
+      public void run() {
+        uiController.loopMainThreadUntilIdle();
+        View rootView;
+        try {
+          rootView = rootViewProvider.get();
+        } catch (NoMatchingRootException noRoot) {
+          matchCount.set(0);
+          return;
+        }
+        matchCount.set(ViewFinderImpl.countMatches(viewMatcher, rootView, limit));
       }
     });
+    return matchCount.get();
   }
 
   /**
@@ -129,34 +258,161 @@ public final class ViewInteraction {
    * @return this interaction for further perform/verification calls.
    */
   public ViewInteraction check(final ViewAssertion viewAssert) {
+    runSynchronouslyOnUiThread(checkTask(viewAssert));
+    return this;
+  }
+
+  /**
+   * Checks the given assertion like {@link #check} does, but without blocking the calling thread.
+   * As with {@link #performAsync}, interactions run in the order they were requested and awaiting
+   * the returned future reports a failure to the {@link FailureHandler}.
+   *
+   * @param viewAssert the assertion to perform.
+   * @return a future for the completion of the check.
+   */
+  public ListenableFuture<Void> checkAsync(final ViewAssertion viewAssert) {
+    return runAsynchronouslyOnUiThread(checkTask(viewAssert));
+  }
+
+  private Runnable checkTask(final ViewAssertion viewAssert) {
     checkNotNull(viewAssert);
-    runSynchronouslyOnUiThread(new Runnable() {
+    return new Runnable() {
       @Override
       public void run() {
         uiController.loopMainThreadUntilIdle();
 
-        Optional<View> targetView = Optional.absent();
-        Optional<NoMatchingViewException> missingViewException = Optional.absent();
+        // assertions must not mutate the view, so they can share the lookup's results.
+        ViewQueryScope scope = ViewQueryScope.begin();
         try {
-          targetView = Optional.of(viewFinder.getView());
-        } catch (NoMatchingViewException nsve) {
-          missingViewException = Optional.of(nsve);
+          Optional<View> targetView = Optional.absent();
+          Optional<NoMatchingViewException> missingViewException = Optional.absent();
+          try {
+            targetView = Optional.of(findTargetView());
+          } catch (NoMatchingViewException nsve) {
+            missingViewException = Optional.of(nsve);
+          }
+          viewAssert.check(targetView, missingViewException);
+        } finally {
+          scope.end();
         }
-        viewAssert.check(targetView, missingViewException);
+      }
+    };
+  }
+
+  /**
+   * Checks the given assertion like {@link #check} does, but looks up the view and evaluates the
+   * assertion against a {@link HierarchySnapshot} on the calling thread. Only capturing the
+   * snapshot blocks the main thread, which makes this worthwhile for expensive matchers and large
+   * hierarchies.
+   * <p>
+   * If the check does not pass against the snapshot, it is repeated with {@link #check} so the
+   * failure is reported exactly as it would have been there.
+   * </p>
+   *
+   * @param viewAssert a {@link SnapshotAssertion}, e.g. one of the standard ViewAssertions.
+   * @return this interaction for further perform/verification calls.
+   * @throws IllegalArgumentException if the view matcher or the assertion cannot be evaluated
+   *     against a snapshot (see {@link SnapshotMatcher} and {@link SnapshotAssertion}).
+   */
+  public ViewInteraction checkOnSnapshot(final ViewAssertion viewAssert) {
+    checkNotNull(viewAssert);
+    if (matchIndex >= 0) {
+      // snapshots number views depth first, they cannot tell the breadth first index of a match.
+      return check(viewAssert);
+    }
+    checkArgument(HierarchySnapshot.canMatch(viewMatcher),
+        "View matcher cannot be evaluated against a snapshot: %s", viewMatcher);
+    checkArgument(viewAssert instanceof SnapshotAssertion
+        && ((SnapshotAssertion) viewAssert).canCheckSnapshot(),
+        "Assertion cannot be evaluated against a snapshot: %s", viewAssert);
+
+    final AtomicReference<HierarchySnapshot> snapshotRef =
+        new AtomicReference<HierarchySnapshot>();
+    runSynchronouslyOnUiThread(new Runnable() {
+      @Override
+      public void run() {
+        uiController.loopMainThreadUntilIdle();
+        snapshotRef.set(HierarchySnapshot.capture(rootViewProvider.get()));
       }
     });
-    return this;
+    HierarchySnapshot snapshot = snapshotRef.get();
+    if (null == snapshot) {
+      // capturing failed and the failure handler chose to carry on.
+      return this;
+    }
+    int[] matched = snapshot.indicesMatching(viewMatcher);
+    if (matched.length <= 1 && ((SnapshotAssertion) viewAssert)
+        .holdsInSnapshot(snapshot, matched.length == 1 ? matched[0] : -1)) {
+      return this;
+    }
+    return check(viewAssert);
+  }
+
+  // reuses the view an earlier action of the same perform call acted on, if it still qualifies.
+  private View findTargetView(AtomicReference<View> resolvedView) {
+    View previousView = resolvedView.get();
+    if (matchIndex < 0 && null != previousView && ViewFinderImpl.isStillMatchedUnder(
+        viewMatcher, previousView, rootViewProvider.get())) {
+      return previousView;
+    }
+    View view = findTargetView();
+    resolvedView.set(view);
+    return view;
+  }
+
+  private View findTargetView() {
+    if (matchIndex < 0) {
+      return viewFinder.getView();
+    }
+    return ViewFinderImpl.getViewAt(viewMatcher, rootViewProvider.get(), matchIndex);
   }
 
   private void runSynchronouslyOnUiThread(Runnable action) {
-    FutureTask<Void> uiTask = new FutureTask<Void>(action, null);
-    mainThreadExecutor.execute(uiTask);
+    Throwable failure;
     try {
-      uiTask.get();
+      failure = MainThreadHandoff.forCurrentThread().runAndWait(mainThreadExecutor, action);
     } catch (InterruptedException ie) {
       throw new RuntimeException("Interrupted  running UI task", ie);
-    } catch (ExecutionException ee) {
-      failureHandler.handle(ee.getCause(), viewMatcher);
+    }
+    if (null != failure) {
+      failureHandler.handle(failure, viewMatcher);
+    }
+  }
+
+  private ListenableFuture<Void> runAsynchronouslyOnUiThread(Runnable action) {
+    ListenableFutureTask<Void> uiTask = ListenableFutureTask.create(action, null);
+    mainThreadExecutor.execute(uiTask);
+    return new FailureHandlingFuture(uiTask);
+  }
+
+  /**
+   * Reports the failure of an interaction to the failure handler when it is awaited.
+   */
+  private final class FailureHandlingFuture
+      extends ForwardingListenableFuture.SimpleForwardingListenableFuture<Void> {
+
+    private FailureHandlingFuture(ListenableFuture<Void> delegate) {
+      super(delegate);
+    }
+
+    @Override
+    public Void get() throws InterruptedException {
+      try {
+        return super.get();
+      } catch (ExecutionException ee) {
+        failureHandler.handle(ee.getCause(), viewMatcher);
+        return null;
+      }
+    }
+
+    @Override
+    public Void get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+      try {
+        return super.get(timeout, unit);
+      } catch (ExecutionException ee) {
+        failureHandler.handle(ee.getCause(), viewMatcher);
+        return null;
+      }
     }
   }
 }
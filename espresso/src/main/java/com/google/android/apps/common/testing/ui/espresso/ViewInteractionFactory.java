@@ -0,0 +1,127 @@
+package com.google.android.apps.common.testing.ui.espresso;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+
+import com.google.android.apps.common.testing.testrunner.ActivityLifecycleMonitor;
+import com.google.android.apps.common.testing.ui.espresso.base.MainThread;
+import com.google.android.apps.common.testing.ui.espresso.base.RootViewPicker;
+import com.google.android.apps.common.testing.ui.espresso.base.ViewFinderImpl;
+import com.google.android.apps.common.testing.ui.espresso.matcher.RootMatchers;
+
+import android.view.View;
+
+import org.hamcrest.Matcher;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+/**
+ * Creates {@link ViewInteraction}s, {@link ViewCheckBatch}es and {@link InteractionSequence}s
+ * without extending the Espresso graph.
+ * <p>
+ * The factory is injected once from the Espresso graph, including any modules given to
+ * {@link GraphHolder#initialize}, so those modules still supply the {@link UiController}, the main
+ * thread executor, the {@link FailureHandler}, the roots and the activity lifecycle monitor. The
+ * per interaction objects - the root matcher, the {@link RootViewPicker} and the
+ * {@link ViewFinderImpl} - are wired by hand for every call instead of by a child graph, which
+ * means modules can no longer override how an interaction picks its root or finds its view.
+ * Batches and sequences look their views up themselves, so they only get a root matcher and a
+ * root view picker of their own.
+ * </p>
+ */
+@Singleton
+final class ViewInteractionFactory {
+
+  private final UiController uiController;
+  private final Executor mainThreadExecutor;
+  private final Provider<FailureHandler> failureHandlerProvider;
+  private final Provider<List<Root>> rootsOracle;
+  private final ActivityLifecycleMonitor activityLifecycleMonitor;
+
+  @Inject
+  ViewInteractionFactory(
+      UiController uiController,
+      @MainThread Executor mainThreadExecutor,
+      Provider<FailureHandler> failureHandlerProvider,
+      Provider<List<Root>> rootsOracle,
+      ActivityLifecycleMonitor activityLifecycleMonitor) {
+    this.uiController = checkNotNull(uiController);
+    this.mainThreadExecutor = checkNotNull(mainThreadExecutor);
+    this.failureHandlerProvider = checkNotNull(failureHandlerProvider);
+    this.rootsOracle = checkNotNull(rootsOracle);
+    this.activityLifecycleMonitor = checkNotNull(activityLifecycleMonitor);
+  }
+
+  /**
+   * Returns a new interaction with the view selected by the given view matcher.
+   */
+  ViewInteraction create(Matcher<View> viewMatcher) {
+    checkNotNull(viewMatcher);
+    AtomicReference<Matcher<Root>> rootMatcherRef = newRootMatcherRef();
+    RootViewPicker rootViewPicker = newRootViewPicker(rootMatcherRef);
+    return new ViewInteraction(
+        uiController,
+        new ViewFinderImpl(viewMatcher, rootViewPicker),
+        mainThreadExecutor,
+        // the failure handler can be replaced at any time, pick up the current one.
+        failureHandlerProvider.get(),
+        viewMatcher,
+        rootMatcherRef,
+        rootViewPicker);
+  }
+
+  /**
+   * Returns a new, empty batch of view checks.
+   */
+  ViewCheckBatch createCheckBatch() {
+    AtomicReference<Matcher<Root>> rootMatcherRef = newRootMatcherRef();
+    return new ViewCheckBatch(uiController, mainThreadExecutor, failureHandlerProvider.get(),
+        rootMatcherRef, newRootViewPicker(rootMatcherRef));
+  }
+
+  /**
+   * Returns a new, empty sequence of interactions.
+   */
+  InteractionSequence createSequence() {
+    AtomicReference<Matcher<Root>> rootMatcherRef = newRootMatcherRef();
+    return new InteractionSequence(uiController, mainThreadExecutor, failureHandlerProvider.get(),
+        rootMatcherRef, newRootViewPicker(rootMatcherRef));
+  }
+
+  private static AtomicReference<Matcher<Root>> newRootMatcherRef() {
+    return new AtomicReference<Matcher<Root>>(RootMatchers.DEFAULT);
+  }
+
+  private RootViewPicker newRootViewPicker(AtomicReference<Matcher<Root>> rootMatcherRef) {
+    return new RootViewPicker(rootsOracle, uiController, activityLifecycleMonitor, rootMatcherRef);
+  }
+
+  /**
+   * Waits for the application to idle, then runs the given task on the main thread. Unlike an
+   * interaction, this does not look up any view.
+   */
+  void runWhenIdle(final Runnable task) {
+    checkNotNull(task);
+    Throwable failure;
+    try {
+      failure = MainThreadHandoff.forCurrentThread().runAndWait(mainThreadExecutor, new Runnable() {
+        @Override
+        public void run() {
+          uiController.loopMainThreadUntilIdle();
+          task.run();
+        }
+      });
+    } catch (InterruptedException ie) {
+      throw new RuntimeException("Interrupted running UI task", ie);
+    }
+    if (null != failure) {
+      throw propagate(failure);
+    }
+  }
+}
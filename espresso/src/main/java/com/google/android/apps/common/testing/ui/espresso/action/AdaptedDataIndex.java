@@ -0,0 +1,139 @@
+package com.google.android.apps.common.testing.ui.espresso.action;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.android.apps.common.testing.ui.espresso.action.AdapterViewProtocol.AdaptedData;
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import android.database.Cursor;
+import android.database.DataSetObserver;
+import android.widget.Adapter;
+
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Remembers which data a data matcher selected in an adapter, until the adapter's data changes.
+ * <p>
+ * Loading adapter data scans the adapter until the outcome is decided, which for a unique match
+ * means scanning all of it. Interacting with the same data repeatedly (e.g. a DataInteraction
+ * performing an action and then checking the result) would repeat that scan every time. Results
+ * are kept per adapter and cleared by a {@link DataSetObserver} as soon as the adapter reports a
+ * change.
+ * </p>
+ * <p>
+ * Every onData call builds new matcher instances, and hamcrest matchers do not define equality, so
+ * data matchers are told apart by their class and description: the same onData call made again
+ * later in a test class finds the data of the first one. Since unrelated matchers may happen to
+ * describe themselves alike, a remembered item is only handed out if it still matches (items which
+ * are cursors, shared by all rows, are trusted as they are).
+ * </p>
+ * <p>
+ * Must only be used on the main thread, where adapters notify their observers.
+ * </p>
+ */
+final class AdaptedDataIndex {
+
+  private static final int MAX_ENTRIES_PER_ADAPTER = 100;
+
+  private static final Map<Adapter, AdapterEntry> ENTRIES =
+      new WeakHashMap<Adapter, AdapterEntry>();
+
+  private AdaptedDataIndex() {}
+
+  /**
+   * Returns the data previously selected in the adapter by the given matcher, position and
+   * protocol, provided the adapter did not report a change since.
+   */
+  static Optional<AdaptedData> get(Adapter adapter, Matcher<Object> dataMatcher,
+      Optional<Integer> atPosition, AdapterViewProtocol adapterViewProtocol) {
+    AdapterEntry entry = ENTRIES.get(checkNotNull(adapter));
+    if (null == entry || entry.count != adapter.getCount()) {
+      return Optional.absent();
+    }
+    AdaptedData data =
+        entry.selections.getIfPresent(new Key(dataMatcher, atPosition, adapterViewProtocol));
+    if (null == data || (!(data.data instanceof Cursor) && !dataMatcher.matches(data.data))) {
+      return Optional.absent();
+    }
+    return Optional.of(data);
+  }
+
+  /**
+   * Remembers the data selected in the adapter by the given matcher, position and protocol.
+   */
+  static void put(Adapter adapter, Matcher<Object> dataMatcher, Optional<Integer> atPosition,
+      AdapterViewProtocol adapterViewProtocol, AdaptedData data) {
+    AdapterEntry entry = ENTRIES.get(checkNotNull(adapter));
+    if (null == entry) {
+      entry = new AdapterEntry();
+      adapter.registerDataSetObserver(entry.observer);
+      ENTRIES.put(adapter, entry);
+    }
+    if (entry.count != adapter.getCount()) {
+      // the adapter changed without telling its observers.
+      entry.selections.invalidateAll();
+      entry.count = adapter.getCount();
+    }
+    entry.selections.put(
+        new Key(dataMatcher, atPosition, adapterViewProtocol), checkNotNull(data));
+  }
+
+  // must not reference the adapter, it is the key of a weak map.
+  private static final class AdapterEntry {
+    private final Cache<Key, AdaptedData> selections =
+        CacheBuilder.newBuilder().maximumSize(MAX_ENTRIES_PER_ADAPTER).build();
+    private int count = -1;
+
+    private final DataSetObserver observer = new DataSetObserver() {
+      @Override
+      public void onChanged() {
+        selections.invalidateAll();
+      }
+
+      @Override
+      public void onInvalidated() {
+        selections.invalidateAll();
+      }
+    };
+  }
+
+  private static final class Key {
+    private final Class<?> dataMatcherClass;
+    private final String dataMatcherDescription;
+    private final Optional<Integer> atPosition;
+    private final AdapterViewProtocol adapterViewProtocol;
+
+    private Key(Matcher<Object> dataMatcher, Optional<Integer> atPosition,
+        AdapterViewProtocol adapterViewProtocol) {
+      this.dataMatcherClass = dataMatcher.getClass();
+      this.dataMatcherDescription = StringDescription.toString(dataMatcher);
+      this.atPosition = checkNotNull(atPosition);
+      this.adapterViewProtocol = checkNotNull(adapterViewProtocol);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return dataMatcherClass == other.dataMatcherClass
+          && dataMatcherDescription.equals(other.dataMatcherDescription)
+          && adapterViewProtocol == other.adapterViewProtocol
+          && atPosition.equals(other.atPosition);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(dataMatcherClass, dataMatcherDescription,
+          System.identityHashCode(adapterViewProtocol), atPosition);
+    }
+  }
+}
@@ -9,11 +9,19 @@ import static org.hamcrest.Matchers.allOf;
 import com.google.android.apps.common.testing.ui.espresso.PerformException;
 import com.google.android.apps.common.testing.ui.espresso.UiController;
 import com.google.android.apps.common.testing.ui.espresso.ViewAction;
+import com.google.android.apps.common.testing.ui.espresso.matcher.ThreadSafeMatchers;
 import com.google.android.apps.common.testing.ui.espresso.util.HumanReadables;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
+import android.database.Cursor;
+import android.os.SystemClock;
 import android.view.View;
+import android.view.ViewTreeObserver;
+import android.view.ViewTreeObserver.OnGlobalLayoutListener;
+import android.view.ViewTreeObserver.OnScrollChangedListener;
 import android.widget.Adapter;
 import android.widget.AdapterView;
 
@@ -21,6 +29,7 @@ import org.hamcrest.Matcher;
 import org.hamcrest.StringDescription;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Forces an AdapterView to ensure that the data matching a provided data matcher
@@ -28,6 +37,14 @@ import java.util.List;
  *
  */
 public final class AdapterDataLoaderAction implements ViewAction {
+  // how many of the adapter's values are listed when none of them matched.
+  private static final int CONTAINED_VALUES_SAMPLE_SIZE = 20;
+  // while the adapter view moves, a message this far ahead keeps the idle loop looping (it counts
+  // messages due within 15ms as pending work).
+  private static final long KEEP_LOOPING_MILLIS = 10;
+  // how long the adapter view may not move before it is asked again to bring the data on screen.
+  private static final long STALL_MILLIS = 100;
+
   private final Matcher<Object> dataToLoadMatcher;
   private final AdapterViewProtocol adapterViewProtocol;
   private final Optional<Integer> atPosition;
@@ -59,13 +76,105 @@ public final class AdapterDataLoaderAction implements ViewAction {
   @Override
   public void perform(UiController uiController, View view) {
     AdapterView<? extends Adapter> adapterView = (AdapterView<? extends Adapter>) view;
+    Adapter adapter = adapterView.getAdapter();
+    Optional<AdapterViewProtocol.AdaptedData> indexedData = null == adapter
+        ? Optional.<AdapterViewProtocol.AdaptedData>absent()
+        : AdaptedDataIndex.get(adapter, dataToLoadMatcher, atPosition, adapterViewProtocol);
+    if (indexedData.isPresent()) {
+      synchronized (dataLock) {
+        checkState(!performed, "perform called 2x!");
+        performed = true;
+        adaptedData = indexedData.get();
+      }
+    } else {
+      selectAdaptedData(adapterView);
+      if (null != adapter) {
+        AdaptedDataIndex.put(
+            adapter, dataToLoadMatcher, atPosition, adapterViewProtocol, adaptedData);
+      }
+    }
+
+    if (adapterViewProtocol.isDataRenderedWithinAdapterView(adapterView, adaptedData)) {
+      return;
+    }
+    // rather than polling on a fixed interval, check whenever the adapter view lays out or scrolls
+    // towards the data and only nudge it again once it stopped moving.
+    MovementWatch movementWatch = new MovementWatch(adapterView);
+    try {
+      adapterViewProtocol.makeDataRenderedWithinAdapterView(adapterView, adaptedData);
+      while (!movementWatch.awaitRendered(uiController)) {
+        // sometimes an adapter view will receive an event that will block its attempts to scroll.
+        adapterView.invalidate();
+        adapterViewProtocol.makeDataRenderedWithinAdapterView(adapterView, adaptedData);
+      }
+    } finally {
+      movementWatch.detach();
+    }
+  }
+
+  /**
+   * Returns all the data of the adapter view, or null if its items cannot be matched on other
+   * threads. A cursor (e.g. every item of a CursorAdapter is its one shared cursor), or any item
+   * handed out more than once, is an object that moves along with the iteration: by the time a
+   * worker reads it, it no longer holds the row it was captured for.
+   */
+  private List<AdapterViewProtocol.AdaptedData> captureDistinctData(
+      AdapterView<? extends Adapter> adapterView) {
+    List<AdapterViewProtocol.AdaptedData> allData = Lists.newArrayList();
+    Set<Object> seen = Sets.newIdentityHashSet();
+    for (AdapterViewProtocol.AdaptedData data :
+        adapterViewProtocol.getDataInAdapterView(adapterView)) {
+      if (data.data instanceof Cursor || !seen.add(data.data)) {
+        return null;
+      }
+      allData.add(data);
+    }
+    return allData;
+  }
+
+  @VisibleForTesting
+  void selectAdaptedData(AdapterView<? extends Adapter> adapterView) {
     List<AdapterViewProtocol.AdaptedData> matchedDataItems = Lists.newArrayList();
+    List<AdapterViewProtocol.AdaptedData> containedValues = Lists.newArrayList();
+    int scannedCount = 0;
+    // the scan is over once the requested match is found or a second match makes it ambiguous.
+    int decisiveMatchCount = atPosition.isPresent() ? atPosition.get() + 1 : 2;
 
-    for (AdapterViewProtocol.AdaptedData data : adapterViewProtocol.getDataInAdapterView(
-        adapterView)) {
+    List<AdapterViewProtocol.AdaptedData> allData = null;
+    if (ThreadSafeMatchers.isThreadSafe(dataToLoadMatcher)
+        && ThreadSafeMatchers.isMatchedInParallel(adapterView.getCount())) {
+      // only reading the adapter needs the main thread, matching can be spread over workers.
+      // capturing every item only pays off for lists large enough to be matched in parallel.
+      allData = captureDistinctData(adapterView);
+    }
 
-      if (dataToLoadMatcher.matches(data.data)) {
-        matchedDataItems.add(data);
+    if (null != allData) {
+      List<Object> items = Lists.newArrayListWithCapacity(allData.size());
+      for (AdapterViewProtocol.AdaptedData data : allData) {
+        items.add(data.data);
+      }
+      scannedCount = allData.size();
+      containedValues.addAll(
+          allData.subList(0, Math.min(CONTAINED_VALUES_SAMPLE_SIZE, allData.size())));
+      for (int index : ThreadSafeMatchers.indicesMatching(dataToLoadMatcher, items)) {
+        matchedDataItems.add(allData.get(index));
+        if (matchedDataItems.size() == decisiveMatchCount) {
+          break;
+        }
+      }
+    } else {
+      for (AdapterViewProtocol.AdaptedData data : adapterViewProtocol.getDataInAdapterView(
+          adapterView)) {
+        scannedCount++;
+        if (containedValues.size() < CONTAINED_VALUES_SAMPLE_SIZE) {
+          containedValues.add(data);
+        }
+        if (dataToLoadMatcher.matches(data.data)) {
+          matchedDataItems.add(data);
+          if (matchedDataItems.size() == decisiveMatchCount) {
+            break;
+          }
+        }
       }
     }
 
@@ -75,11 +184,14 @@ public final class AdapterDataLoaderAction implements ViewAction {
 
       if (matchedDataItems.isEmpty()) {
         dataMatcherDescription.appendText(" contained values: ");
-          dataMatcherDescription.appendValue(
-              adapterViewProtocol.getDataInAdapterView(adapterView));
+        dataMatcherDescription.appendValue(containedValues);
+        if (scannedCount > containedValues.size()) {
+          dataMatcherDescription.appendText(String.format(" (first %s of %s values)",
+              containedValues.size(), scannedCount));
+        }
         throw new PerformException.Builder()
           .withActionDescription(this.getDescription())
-          .withViewDescription(HumanReadables.describe(view))
+          .withViewDescription(HumanReadables.describe(adapterView))
           .withCause(new RuntimeException("No data found matching: " + dataMatcherDescription))
           .build();
       }
@@ -89,14 +201,13 @@ public final class AdapterDataLoaderAction implements ViewAction {
       checkState(!performed, "perform called 2x!");
       performed = true;
       if (atPosition.isPresent()) {
-        int matchedDataItemsSize = matchedDataItems.size() - 1;
-        if (atPosition.get() > matchedDataItemsSize) {
+        if (atPosition.get() >= matchedDataItems.size()) {
           throw new PerformException.Builder()
             .withActionDescription(this.getDescription())
-            .withViewDescription(HumanReadables.describe(view))
+            .withViewDescription(HumanReadables.describe(adapterView))
             .withCause(new RuntimeException(String.format(
                 "There are only %d elements that matched but requested %d element.",
-                matchedDataItemsSize, atPosition.get())))
+                matchedDataItems.size(), atPosition.get())))
             .build();
         } else {
           adaptedData = matchedDataItems.get(atPosition.get());
@@ -107,34 +218,87 @@ public final class AdapterDataLoaderAction implements ViewAction {
           dataToLoadMatcher.describeTo(dataMatcherDescription);
           throw new PerformException.Builder()
             .withActionDescription(this.getDescription())
-            .withViewDescription(HumanReadables.describe(view))
+            .withViewDescription(HumanReadables.describe(adapterView))
             .withCause(new RuntimeException("Multiple data elements " +
-                "matched: " + dataMatcherDescription + ". Elements: " + matchedDataItems))
+                "matched: " + dataMatcherDescription + ". First elements: " + matchedDataItems))
             .build();
         } else {
           adaptedData = matchedDataItems.get(0);
         }
       }
     }
-
-    int requestCount = 0;
-    while (!adapterViewProtocol.isDataRenderedWithinAdapterView(adapterView, adaptedData)) {
-      if (requestCount > 1) {
-        if ((requestCount % 50) == 0) {
-          // sometimes an adapter view will receive an event that will block its attempts to scroll.
-          adapterView.invalidate();
-          adapterViewProtocol.makeDataRenderedWithinAdapterView(adapterView, adaptedData);
-        }
-      } else {
-        adapterViewProtocol.makeDataRenderedWithinAdapterView(adapterView, adaptedData);
-      }
-      uiController.loopMainThreadForAtLeast(100);
-      requestCount++;
-    }
   }
 
   @Override
   public String getDescription() {
     return "load adapter data";
   }
+
+  /**
+   * Follows the adapter view while it moves towards the loaded data. Every layout or scroll of its
+   * tree checks once whether the data is rendered; until then, a message kept due shortly in the
+   * main queue stops the idle loop from returning between two frames. The loop returns once the
+   * data is rendered, or once the view did not move for {@link #STALL_MILLIS}.
+   */
+  private final class MovementWatch
+      implements OnGlobalLayoutListener, OnScrollChangedListener, Runnable {
+    private final AdapterView<? extends Adapter> adapterView;
+    private boolean rendered;
+    private long lastMovedMillis;
+
+    private MovementWatch(AdapterView<? extends Adapter> adapterView) {
+      this.adapterView = adapterView;
+      ViewTreeObserver observer = adapterView.getViewTreeObserver();
+      observer.addOnGlobalLayoutListener(this);
+      observer.addOnScrollChangedListener(this);
+    }
+
+    /**
+     * Loops the main thread until the data is rendered or the adapter view stops moving, and
+     * returns whether the data is rendered.
+     */
+    boolean awaitRendered(UiController uiController) {
+      onMoved();
+      uiController.loopMainThreadUntilIdle();
+      adapterView.removeCallbacks(this);
+      return adapterViewProtocol.isDataRenderedWithinAdapterView(adapterView, adaptedData);
+    }
+
+    @Override
+    public void onGlobalLayout() {
+      onMoved();
+    }
+
+    @Override
+    public void onScrollChanged() {
+      onMoved();
+    }
+
+    private void onMoved() {
+      rendered = adapterViewProtocol.isDataRenderedWithinAdapterView(adapterView, adaptedData);
+      lastMovedMillis = SystemClock.uptimeMillis();
+      adapterView.removeCallbacks(this);
+      if (!rendered) {
+        adapterView.postDelayed(this, KEEP_LOOPING_MILLIS);
+      }
+    }
+
+    @Override
+    public void run() {
+      if (SystemClock.uptimeMillis() - lastMovedMillis < STALL_MILLIS) {
+        adapterView.postDelayed(this, KEEP_LOOPING_MILLIS);
+      }
+    }
+
+    @SuppressWarnings("deprecation")
+    void detach() {
+      adapterView.removeCallbacks(this);
+      ViewTreeObserver observer = adapterView.getViewTreeObserver();
+      if (observer.isAlive()) {
+        // removeOnGlobalLayoutListener only exists from jelly bean on.
+        observer.removeGlobalOnLayoutListener(this);
+        observer.removeOnScrollChangedListener(this);
+      }
+    }
+  }
 }
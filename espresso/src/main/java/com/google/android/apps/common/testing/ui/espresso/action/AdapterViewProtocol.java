@@ -46,6 +46,11 @@ public interface AdapterViewProtocol {
    * implementation should make the AdapterView bring that data item onto the screen.
    * </p>
    *
+   * <p>
+   * Callers stop iterating as soon as they found what they are looking for, so implementations
+   * should produce the AdaptedDatas lazily rather than collect all of them up front.
+   * </p>
+   *
    * @param adapterView the AdapterView we want to interrogate the contents of.
    * @return an {@link Iterable} of AdaptedDatas representing all data the implementation sees in
    *         this view
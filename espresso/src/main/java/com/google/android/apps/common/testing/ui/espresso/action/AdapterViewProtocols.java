@@ -2,11 +2,13 @@ package com.google.android.apps.common.testing.ui.espresso.action;
 
 import static com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.isDisplayingAtLeast;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.base.Optional;
-import com.google.common.collect.Lists;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Range;
 
+import android.database.Cursor;
 import android.os.Build;
 import android.view.View;
 import android.widget.AbsListView;
@@ -14,8 +16,14 @@ import android.widget.Adapter;
 import android.widget.AdapterView;
 import android.widget.AdapterViewAnimator;
 import android.widget.AdapterViewFlipper;
+import android.widget.CursorAdapter;
+import android.widget.HeaderViewListAdapter;
+import android.widget.ListView;
 
-import java.util.List;
+import org.hamcrest.Matcher;
+
+import java.util.Collections;
+import java.util.Iterator;
 
 /**
  * Implementations of {@link AdapterViewProtocol} for standard SDK Widgets.
@@ -31,7 +39,9 @@ public final class AdapterViewProtocols {
 
   private AdapterViewProtocols() {}
 
-  private static final AdapterViewProtocol STANDARD_PROTOCOL = new StandardAdapterViewProtocol();
+  private static final AdapterViewProtocol STANDARD_PROTOCOL =
+      new StandardAdapterViewProtocol(false);
+  private static final AdapterViewProtocol JUMPING_PROTOCOL = new StandardAdapterViewProtocol(true);
 
   /**
    * Creates an implementation of AdapterViewProtocol that can work with AdapterViews that do not
@@ -42,20 +52,160 @@ public final class AdapterViewProtocols {
     return STANDARD_PROTOCOL;
   }
 
+  /**
+   * Creates an implementation of AdapterViewProtocol like {@link #standardProtocol}, which brings
+   * data onto the screen of a ListView, GridView or any other AbsListView by positioning the view
+   * directly on it (setSelection) rather than smooth scrolling there. Much faster for data far down
+   * a long list, but the application does not see the intermediate scroll events a user would
+   * cause. Other adapter views are handled as by the standard protocol.
+   */
+  public static AdapterViewProtocol jumpingProtocol() {
+    return JUMPING_PROTOCOL;
+  }
+
+  /**
+   * Creates an implementation of AdapterViewProtocol for AdapterViews backed by a CursorAdapter,
+   * which only offers the rows whose value in the given column matches the given matcher.
+   * <p>
+   * The standard protocol materializes every row through getItemAtPosition for the data matcher to
+   * look at. This one finds the candidate rows in a single forward pass over the cursor that only
+   * reads the given column, so the data matcher passed to onData only sees the rows that passed
+   * the column predicate (for many cases {@code anything()} is enough). Values are read with
+   * {@link Cursor#getString}, which renders numbers as their decimal string.
+   * </p>
+   * <p>
+   * A CursorAdapter does not expose the query behind its cursor, so there is no separate, narrower
+   * query to run: the pass borrows the adapter's own cursor and moves it back to where it was once
+   * the next candidate is found. Only handing out a candidate moves the cursor onto its row, as
+   * CursorAdapter.getItem does for any protocol.
+   * </p>
+   *
+   * @throws IllegalArgumentException on use, if the adapter view is not backed by a CursorAdapter
+   *     or its cursor has no such column.
+   */
+  public static AdapterViewProtocol cursorProtocol(String columnName,
+      Matcher<String> columnValueMatcher) {
+    return new CursorAdapterViewProtocol(columnName, columnValueMatcher);
+  }
+
   // TODO(user): expandablelistview protocols
 
-  private static final class StandardAdapterViewProtocol implements AdapterViewProtocol {
+  private static final class CursorAdapterViewProtocol implements AdapterViewProtocol {
+    private final String columnName;
+    private final Matcher<String> columnValueMatcher;
+
+    private CursorAdapterViewProtocol(String columnName, Matcher<String> columnValueMatcher) {
+      this.columnName = checkNotNull(columnName);
+      this.columnValueMatcher = checkNotNull(columnValueMatcher);
+    }
+
     @Override
-    public Iterable<AdaptedData> getDataInAdapterView(AdapterView<? extends Adapter> adapterView) {
-      List<AdaptedData> datas = Lists.newArrayList();
-      for (int i = 0; i < adapterView.getCount(); i++) {
-        datas.add(
-            new AdaptedData.Builder()
-              .withData(adapterView.getItemAtPosition(i))
-              .withOpaqueToken(i)
-              .build());
+    public Iterable<AdaptedData> getDataInAdapterView(
+        final AdapterView<? extends Adapter> adapterView) {
+      Adapter adapter = adapterView.getAdapter();
+      // list views wrap their adapter once they have header or footer views.
+      int headerCount = 0;
+      if (adapter instanceof HeaderViewListAdapter) {
+        headerCount = ((HeaderViewListAdapter) adapter).getHeadersCount();
+        adapter = ((HeaderViewListAdapter) adapter).getWrappedAdapter();
       }
-      return datas;
+      checkArgument(adapter instanceof CursorAdapter, "Not backed by a CursorAdapter: %s", adapter);
+      final Cursor cursor = ((CursorAdapter) adapter).getCursor();
+      if (null == cursor) {
+        return Collections.emptyList();
+      }
+      final int columnIndex = cursor.getColumnIndex(columnName);
+      checkArgument(columnIndex >= 0, "No column %s in: %s", columnName, cursor);
+      final int positionOffset = headerCount;
+
+      return new Iterable<AdaptedData>() {
+        @Override
+        public Iterator<AdaptedData> iterator() {
+          return new AbstractIterator<AdaptedData>() {
+            private int row = -1;
+
+            @Override
+            protected AdaptedData computeNext() {
+              // the scan borrows the adapter's cursor, which is left where it was found.
+              int restorePosition = cursor.getPosition();
+              boolean found = false;
+              try {
+                // the cursor is positioned explicitly, callers may move it between two rows.
+                while (!found && cursor.moveToPosition(++row)) {
+                  found = columnValueMatcher.matches(cursor.getString(columnIndex));
+                }
+              } finally {
+                cursor.moveToPosition(restorePosition);
+              }
+              if (!found) {
+                return endOfData();
+              }
+              int position = positionOffset + row;
+              // like any adapter view protocol, hands out the row as the adapter does: a
+              // CursorAdapter's item is its cursor, moved onto that row.
+              return new AdaptedData.Builder()
+                  .withData(adapterView.getItemAtPosition(position))
+                  .withOpaqueToken(position)
+                  .build();
+            }
+          };
+        }
+      };
+    }
+
+    // bringing a row onto the screen works by position, as for any other adapter.
+
+    @Override
+    public Optional<AdaptedData> getDataRenderedByView(AdapterView<? extends Adapter> adapterView,
+        View descendantView) {
+      return STANDARD_PROTOCOL.getDataRenderedByView(adapterView, descendantView);
+    }
+
+    @Override
+    public void makeDataRenderedWithinAdapterView(
+        AdapterView<? extends Adapter> adapterView, AdaptedData data) {
+      STANDARD_PROTOCOL.makeDataRenderedWithinAdapterView(adapterView, data);
+    }
+
+    @Override
+    public boolean isDataRenderedWithinAdapterView(
+        AdapterView<? extends Adapter> adapterView, AdaptedData adaptedData) {
+      return STANDARD_PROTOCOL.isDataRenderedWithinAdapterView(adapterView, adaptedData);
+    }
+  }
+
+  private static final class StandardAdapterViewProtocol implements AdapterViewProtocol {
+    private final boolean jumpToData;
+
+    private StandardAdapterViewProtocol(boolean jumpToData) {
+      this.jumpToData = jumpToData;
+    }
+
+    @Override
+    public Iterable<AdaptedData> getDataInAdapterView(
+        final AdapterView<? extends Adapter> adapterView) {
+      // items are only fetched as the caller iterates, callers often stop long before the end.
+      return new Iterable<AdaptedData>() {
+        @Override
+        public Iterator<AdaptedData> iterator() {
+          return new AbstractIterator<AdaptedData>() {
+            private int position = 0;
+
+            @Override
+            protected AdaptedData computeNext() {
+              if (position >= adapterView.getCount()) {
+                return endOfData();
+              }
+              AdaptedData data = new AdaptedData.Builder()
+                  .withData(adapterView.getItemAtPosition(position))
+                  .withOpaqueToken(position)
+                  .build();
+              position++;
+              return data;
+            }
+          };
+        }
+      };
     }
 
     @Override
@@ -82,7 +232,14 @@ public final class AdapterViewProtocols {
       boolean moved = false;
       // set selection should always work, we can give a little better experience if per subtype
       // though.
-      if (Build.VERSION.SDK_INT > 7) {
+      if (jumpToData && adapterView instanceof ListView) {
+        ((ListView) adapterView).setSelectionFromTop(position, adapterView.getPaddingTop());
+        moved = true;
+      } else if (jumpToData && adapterView instanceof AbsListView) {
+        // e.g. a GridView, which brings the row of the selected position on screen.
+        adapterView.setSelection(position);
+        moved = true;
+      } else if (Build.VERSION.SDK_INT > 7) {
         if (adapterView instanceof AbsListView) {
           if (Build.VERSION.SDK_INT > 10) {
             ((AbsListView) adapterView).smoothScrollToPositionFromTop(position,
@@ -7,10 +7,14 @@ import com.google.android.apps.common.testing.ui.espresso.PerformException;
 import com.google.android.apps.common.testing.ui.espresso.UiController;
 import com.google.android.apps.common.testing.ui.espresso.ViewAction;
 import com.google.android.apps.common.testing.ui.espresso.util.HumanReadables;
+import com.google.android.apps.common.testing.ui.espresso.util.TreeIterables;
 import com.google.common.base.Optional;
 
+import android.os.Build;
+import android.os.SystemClock;
 import android.view.View;
 import android.view.ViewConfiguration;
+import android.view.ViewParent;
 import android.webkit.WebView;
 
 import org.hamcrest.Matcher;
@@ -20,6 +24,8 @@ import org.hamcrest.Matcher;
  */
 public final class GeneralClickAction implements ViewAction {
 
+  private static final long FRAME_MILLIS = 16;
+
   private final CoordinatesProvider coordinatesProvider;
   private final Tapper tapper;
   private final PrecisionDescriber precisionDescriber;
@@ -78,6 +84,10 @@ public final class GeneralClickAction implements ViewAction {
     // 'RollBack' ViewAction which when executed will undo the effects of long press.
 
     while (status != Tapper.Status.SUCCESS && loopCount < 3) {
+      // a tapped view stays pressed for a while, and a second tap within that time can have the
+      // pending unpress swallow it. Rather than always waiting that long after a tap, wait before
+      // a tap for as long as the view actually is still pressed.
+      awaitUnpressed(uiController, view);
       try {
         status = tapper.sendTap(uiController, coordinates, precision);
       } catch (RuntimeException re) {
@@ -88,8 +98,9 @@ public final class GeneralClickAction implements ViewAction {
             .build();
       }
 
-      // ensures that all work enqueued to process the tap has been run.
-      uiController.loopMainThreadForAtLeast(ViewConfiguration.getPressedStateDuration());
+      // ensures that all work enqueued to process the tap has been run, including the click itself,
+      // which the view posts.
+      uiController.loopMainThreadUntilIdle();
       if (status == Tapper.Status.WARNING) {
         if (rollbackAction.isPresent()) {
           rollbackAction.get().perform(uiController, view);
@@ -111,13 +122,48 @@ public final class GeneralClickAction implements ViewAction {
         .build();
     }
 
-    if (tapper == Tap.SINGLE && view instanceof WebView) {
+    if (tapper == Tap.SINGLE && view instanceof WebView && mayDelayClicks((WebView) view)) {
       // WebViews will not process click events until double tap
       // timeout. Not the best place for this - but good for now.
       uiController.loopMainThreadForAtLeast(ViewConfiguration.getDoubleTapTimeout());
     }
   }
 
+  private static void awaitUnpressed(UiController uiController, View view) {
+    // some views stay pressed for reasons of their own, don't wait longer than a tap would need.
+    long deadline = SystemClock.uptimeMillis() + ViewConfiguration.getPressedStateDuration();
+    while (isPressed(view)) {
+      long remaining = deadline - SystemClock.uptimeMillis();
+      if (remaining <= 0) {
+        return;
+      }
+      uiController.loopMainThreadForAtLeast(Math.min(FRAME_MILLIS, remaining));
+    }
+  }
+
+  // the tap may have hit a descendant of the view, and pressed state propagates both ways.
+  private static boolean isPressed(View view) {
+    for (View ancestor = view; ancestor != null; ) {
+      if (ancestor.isPressed()) {
+        return true;
+      }
+      ViewParent parent = ancestor.getParent();
+      ancestor = parent instanceof View ? (View) parent : null;
+    }
+    for (View descendant : TreeIterables.breadthFirstViewTraversal(view)) {
+      if (descendant.isPressed()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean mayDelayClicks(WebView webView) {
+    // the chromium based WebView only holds clicks back to tell them from double taps when double
+    // tap to zoom is possible.
+    return Build.VERSION.SDK_INT < 19 || webView.getSettings().supportZoom();
+  }
+
   @Override
   public String getDescription() {
     return tapper.toString().toLowerCase() + " click";
@@ -0,0 +1,83 @@
+package com.google.android.apps.common.testing.ui.espresso.action;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.android.apps.common.testing.ui.espresso.UiController;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Plans when the events of a gesture happen and delivers them on schedule.
+ * <p>
+ * Events are stamped with the time they are planned for rather than the time they happen to be
+ * injected, so a VelocityTracker or GestureDetector in the application sees the intended timing
+ * even on a loaded device. Reaching an event's time takes a single wait for its deadline, rather
+ * than a series of short waits which each have to idle the main thread. How late the events were
+ * delivered (the gesture's jitter) is logged under this class' tag at debug level.
+ * </p>
+ * <p>
+ * Must be used on the main thread, like the {@link UiController} it waits with.
+ * </p>
+ */
+final class GestureScheduler {
+
+  private static final String TAG = GestureScheduler.class.getSimpleName();
+
+  private final UiController uiController;
+  private final long startTime;
+
+  private int deliveredCount;
+  private long totalLatenessMillis;
+  private long maxLatenessMillis;
+
+  GestureScheduler(UiController uiController) {
+    this(uiController, SystemClock.uptimeMillis());
+  }
+
+  GestureScheduler(UiController uiController, long startTime) {
+    this.uiController = checkNotNull(uiController);
+    this.startTime = startTime;
+  }
+
+  long getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * Returns the uptime of an event planned the given number of milliseconds into the gesture.
+   */
+  long timeAt(long offsetMillis) {
+    return startTime + offsetMillis;
+  }
+
+  /**
+   * Returns once the given uptime has been reached, and how late that was in milliseconds.
+   */
+  long awaitTime(long eventTime) {
+    long remaining = eventTime - SystemClock.uptimeMillis();
+    if (remaining > 0) {
+      uiController.loopMainThreadForAtLeast(remaining);
+    }
+    long lateness = Math.max(0, SystemClock.uptimeMillis() - eventTime);
+    deliveredCount++;
+    totalLatenessMillis += lateness;
+    maxLatenessMillis = Math.max(maxLatenessMillis, lateness);
+    return lateness;
+  }
+
+  int getDeliveredCount() {
+    return deliveredCount;
+  }
+
+  long getMaxLatenessMillis() {
+    return maxLatenessMillis;
+  }
+
+  void logJitter(String gesture) {
+    if (deliveredCount > 0 && Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, String.format("%s: %s scheduled events, late by %sms at most, %sms on average",
+          gesture, deliveredCount, maxLatenessMillis, totalLatenessMillis / deliveredCount));
+    }
+  }
+}
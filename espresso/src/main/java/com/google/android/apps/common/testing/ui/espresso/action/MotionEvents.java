@@ -1,5 +1,6 @@
 package com.google.android.apps.common.testing.ui.espresso.action;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.android.apps.common.testing.testrunner.UsageTrackerRegistry;
@@ -39,11 +40,12 @@ final class MotionEvents {
         // Algorithm of sending click event adopted from android.test.TouchUtils.
         // When the click event was first initiated. Needs to be same for both down and up press
         // events.
-        long downTime = SystemClock.uptimeMillis();
+        GestureScheduler scheduler = new GestureScheduler(uiController);
+        long downTime = scheduler.getStartTime();
 
         // Down press.
         motionEvent = MotionEvent.obtain(downTime,
-            SystemClock.uptimeMillis(),
+            downTime,
             MotionEvent.ACTION_DOWN,
             coordinates[0],
             coordinates[1],
@@ -62,15 +64,8 @@ final class MotionEvents {
 
         boolean injectEventSucceeded = uiController.injectMotionEvent(motionEvent);
 
-        while (true) {
-          long delayToBeTap = isTapAt - SystemClock.uptimeMillis();
-          if (delayToBeTap <= 10) {
-            break;
-          }
-          // Sleep only a fraction of the time, since there may be other events in the UI queue
-          // that could cause us to start sleeping late, and then oversleep.
-          uiController.loopMainThreadForAtLeast(delayToBeTap / 4);
-        }
+        scheduler.awaitTime(isTapAt);
+        scheduler.logJitter("down");
 
         boolean longPress = false;
         if (SystemClock.uptimeMillis() > (downTime + ViewConfiguration.getLongPressTimeout())) {
@@ -105,6 +100,15 @@ final class MotionEvents {
   }
 
   static boolean sendUp(UiController uiController, MotionEvent downEvent, float[] coordinates) {
+    return sendUp(uiController, downEvent, coordinates, SystemClock.uptimeMillis());
+  }
+
+  /**
+   * Sends an up event stamped with the given event time, which may be earlier than the time it is
+   * injected at (see {@link GestureScheduler}).
+   */
+  static boolean sendUp(UiController uiController, MotionEvent downEvent, float[] coordinates,
+      long eventTime) {
     checkNotNull(uiController);
     checkNotNull(downEvent);
     checkNotNull(coordinates);
@@ -113,7 +117,7 @@ final class MotionEvents {
     try {
       // Up press.
       motionEvent = MotionEvent.obtain(downEvent.getDownTime(),
-          SystemClock.uptimeMillis(),
+          eventTime,
           MotionEvent.ACTION_UP,
           coordinates[0],
           coordinates[1],
@@ -180,6 +184,15 @@ final class MotionEvents {
 
   static boolean sendMovement(UiController uiController, MotionEvent downEvent,
       float[] coordinates) {
+    return sendMovement(uiController, downEvent, coordinates, SystemClock.uptimeMillis());
+  }
+
+  /**
+   * Sends a move event stamped with the given event time, which may be earlier than the time it is
+   * injected at (see {@link GestureScheduler}).
+   */
+  static boolean sendMovement(UiController uiController, MotionEvent downEvent,
+      float[] coordinates, long eventTime) {
     checkNotNull(uiController);
     checkNotNull(downEvent);
     checkNotNull(coordinates);
@@ -187,7 +200,7 @@ final class MotionEvents {
     MotionEvent motionEvent = null;
     try {
       motionEvent = MotionEvent.obtain(downEvent.getDownTime(),
-          SystemClock.uptimeMillis(),
+          eventTime,
           MotionEvent.ACTION_MOVE,
           coordinates[0],
           coordinates[1],
@@ -217,6 +230,68 @@ final class MotionEvents {
     return true;
   }
 
+  /**
+   * Sends a single move event carrying all given points, the earlier ones as historical samples.
+   * Each point is stamped with the corresponding event time, in increasing order.
+   */
+  static boolean sendMovementBatch(UiController uiController, MotionEvent downEvent,
+      float[][] coordinates, long[] eventTimes) {
+    checkNotNull(uiController);
+    checkNotNull(downEvent);
+
+    MotionEvent motionEvent = null;
+    try {
+      motionEvent = obtainMovementBatch(downEvent.getDownTime(), coordinates, eventTimes);
+      boolean injectEventSucceeded = uiController.injectMotionEvent(motionEvent);
+
+      if (!injectEventSucceeded) {
+        Log.e(TAG, String.format(
+            "Injection of batched motion event failed (corresponding down event: %s)",
+            downEvent.toString()));
+        return false;
+      }
+    } catch (InjectEventSecurityException e) {
+      throw new PerformException.Builder()
+        .withActionDescription(String.format(
+          "inject batched motion event (corresponding down event: %s)", downEvent.toString()))
+        .withViewDescription("unknown") // likely to be replaced by FailureHandler
+        .withCause(e)
+        .build();
+    } finally {
+      if (null != motionEvent) {
+        motionEvent.recycle();
+        motionEvent = null;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Obtains a move event carrying all given points, the earlier ones as historical samples. The
+   * caller recycles it.
+   */
+  static MotionEvent obtainMovementBatch(long downTime, float[][] coordinates,
+      long[] eventTimes) {
+    checkArgument(coordinates.length > 0 && coordinates.length == eventTimes.length,
+        "need as many event times as coordinates: %s, %s", coordinates.length, eventTimes.length);
+    MotionEvent motionEvent = MotionEvent.obtain(downTime,
+        eventTimes[0],
+        MotionEvent.ACTION_MOVE,
+        coordinates[0][0],
+        coordinates[0][1],
+        0);
+    for (int i = 1; i < coordinates.length; i++) {
+      motionEvent.addBatch(eventTimes[i],
+          coordinates[i][0],
+          coordinates[i][1],
+          1, // pressure, as set by obtain
+          1, // size, as set by obtain
+          0); // metaState
+    }
+    return motionEvent;
+  }
+
   /**
    * Holds the result of a down motion.
    */
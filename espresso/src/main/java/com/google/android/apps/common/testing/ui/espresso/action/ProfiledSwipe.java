@@ -0,0 +1,224 @@
+package com.google.android.apps.common.testing.ui.espresso.action;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.android.apps.common.testing.ui.espresso.UiController;
+
+import android.util.Log;
+import android.view.MotionEvent;
+
+/**
+ * Swipes along a velocity profile, sampled finely and injected in batches.
+ * <p>
+ * The pointer's position is sampled every {@value #SAMPLE_INTERVAL_MS}ms along the profile. Like
+ * the input system, which delivers one batch of samples per frame, the samples are injected as one
+ * move event per {@value #FRAME_MS}ms frame, the earlier samples of each as historical samples. A
+ * swipe injects at most {@value #MAX_MOVE_EVENTS} move events: longer ones pack several frames
+ * into each event, since views only need the samples and not a move per frame. Every sample is
+ * stamped with its planned time relative to the down event (see {@link GestureScheduler}), so the
+ * velocity a VelocityTracker computes from the gesture does not depend on how fast the device is.
+ * </p>
+ */
+public final class ProfiledSwipe implements Swiper {
+
+  private static final String TAG = ProfiledSwipe.class.getSimpleName();
+
+  /** Time between two pointer samples, in milliseconds. */
+  static final int SAMPLE_INTERVAL_MS = 4;
+
+  /** Time between two batches of samples delivered by the input system, in milliseconds. */
+  static final int FRAME_MS = 16;
+
+  /** Most move events injected for a swipe, however long it lasts. */
+  static final int MAX_MOVE_EVENTS = 4;
+
+  /** Longest a fling moves before the pointer is lifted, in milliseconds. */
+  private static final int MAX_FLING_DURATION_MS = 1000;
+
+  /**
+   * How the pointer progresses from the start to the end of a swipe over time.
+   */
+  public enum Easing {
+    /** Constant velocity, the gesture ends in a fling at that velocity. */
+    LINEAR {
+      @Override
+      float interpolate(float fraction) {
+        return fraction;
+      }
+    },
+    /** Speeds up towards the end, the gesture ends in a fling. */
+    ACCELERATE {
+      @Override
+      float interpolate(float fraction) {
+        return fraction * fraction;
+      }
+    },
+    /** Slows down to a stop, the gesture ends without a fling (a drag). */
+    DECELERATE {
+      @Override
+      float interpolate(float fraction) {
+        return 1f - (1f - fraction) * (1f - fraction);
+      }
+    },
+    /** Speeds up, then slows down to a stop. */
+    ACCELERATE_DECELERATE {
+      @Override
+      float interpolate(float fraction) {
+        return (float) (Math.cos((fraction + 1) * Math.PI) / 2.0f) + 0.5f;
+      }
+    };
+
+    /** Maps the elapsed fraction of the duration to the fraction of the distance covered. */
+    abstract float interpolate(float fraction);
+  }
+
+  private final Easing easing;
+  private final long durationMillis;
+  private final float velocity;
+
+  private ProfiledSwipe(Easing easing, long durationMillis, float velocity) {
+    this.easing = checkNotNull(easing);
+    this.durationMillis = durationMillis;
+    this.velocity = velocity;
+  }
+
+  /**
+   * Returns a swiper which takes the given time to go from start to end along the given easing.
+   */
+  public static ProfiledSwipe withDuration(long durationMillis, Easing easing) {
+    checkArgument(durationMillis > 0, "duration must be positive: %s", durationMillis);
+    return new ProfiledSwipe(easing, durationMillis, 0);
+  }
+
+  /**
+   * Returns a swiper which flings at exactly the given velocity: the pointer moves from the start
+   * towards the end at that constant velocity, one sample every {@value #SAMPLE_INTERVAL_MS}ms, and
+   * is lifted at the last sample short of the end. A fling lasts at most
+   * {@value #MAX_FLING_DURATION_MS}ms, so the pointer is lifted before the end if getting there
+   * would take longer.
+   *
+   * @param pixelsPerSecond the velocity of the fling, as a VelocityTracker would report it.
+   * @throws IllegalArgumentException on use, if the distance does not leave room for two samples at
+   *     that velocity.
+   */
+  public static ProfiledSwipe flingAtVelocity(float pixelsPerSecond) {
+    checkArgument(pixelsPerSecond > 0, "velocity must be positive: %s", pixelsPerSecond);
+    return new ProfiledSwipe(Easing.LINEAR, 0, pixelsPerSecond);
+  }
+
+  @Override
+  public Swiper.Status sendSwipe(UiController uiController, float[] startCoordinates,
+      float[] endCoordinates, float[] precision) {
+    checkNotNull(uiController);
+    checkNotNull(precision);
+    Path path = plan(startCoordinates, endCoordinates);
+
+    MotionEvent downEvent = MotionEvents.sendDown(uiController, startCoordinates, precision).down;
+    // samples are planned relative to the down event, those already due are sent at once.
+    GestureScheduler scheduler = new GestureScheduler(uiController, downEvent.getDownTime());
+    int sampleCount = path.points.length;
+    int samplesPerEvent = samplesPerEvent(sampleCount);
+    try {
+      long lastEventTime = scheduler.getStartTime();
+      for (int first = 0; first < sampleCount; first += samplesPerEvent) {
+        int count = Math.min(samplesPerEvent, sampleCount - first);
+        float[][] points = new float[count][];
+        long[] eventTimes = new long[count];
+        for (int i = 0; i < count; i++) {
+          points[i] = path.points[first + i];
+          eventTimes[i] = scheduler.timeAt(path.offsetMillis[first + i]);
+        }
+        lastEventTime = eventTimes[count - 1];
+        scheduler.awaitTime(lastEventTime);
+        if (!MotionEvents.sendMovementBatch(uiController, downEvent, points, eventTimes)) {
+          Log.e(TAG, "Injection of move event as part of the swipe failed. Sending cancel event.");
+          MotionEvents.sendCancel(uiController, downEvent);
+          return Swiper.Status.FAILURE;
+        }
+      }
+
+      if (!MotionEvents.sendUp(
+          uiController, downEvent, path.points[sampleCount - 1], lastEventTime)) {
+        Log.e(TAG, "Injection of up event as part of the swipe failed. Sending cancel event.");
+        MotionEvents.sendCancel(uiController, downEvent);
+        return Swiper.Status.FAILURE;
+      }
+    } finally {
+      downEvent.recycle();
+      scheduler.logJitter("swipe");
+    }
+    return Swiper.Status.SUCCESS;
+  }
+
+  /**
+   * Plans the pointer samples following the down event at the start coordinates.
+   */
+  Path plan(float[] startCoordinates, float[] endCoordinates) {
+    checkNotNull(startCoordinates);
+    checkNotNull(endCoordinates);
+    checkElementIndex(1, startCoordinates.length);
+    checkElementIndex(1, endCoordinates.length);
+    float dx = endCoordinates[0] - startCoordinates[0];
+    float dy = endCoordinates[1] - startCoordinates[1];
+
+    if (velocity > 0) {
+      // whole milliseconds between equally spaced samples keep the velocity exact.
+      float distance = (float) Math.hypot(dx, dy);
+      float step = velocity * SAMPLE_INTERVAL_MS / 1000f;
+      int sampleCount = Math.min((int) (distance / step),
+          MAX_FLING_DURATION_MS / SAMPLE_INTERVAL_MS);
+      checkArgument(sampleCount >= 2, "%spx are too short to fling at %spx/s", distance, velocity);
+      Path path = new Path(sampleCount);
+      for (int i = 0; i < sampleCount; i++) {
+        float covered = step * (i + 1) / distance;
+        path.points[i][0] = startCoordinates[0] + dx * covered;
+        path.points[i][1] = startCoordinates[1] + dy * covered;
+        path.offsetMillis[i] = SAMPLE_INTERVAL_MS * (i + 1);
+      }
+      return path;
+    }
+
+    int sampleCount = (int) Math.max(1, (durationMillis + SAMPLE_INTERVAL_MS - 1)
+        / SAMPLE_INTERVAL_MS);
+    Path path = new Path(sampleCount);
+    for (int i = 0; i < sampleCount; i++) {
+      float progress = easing.interpolate((float) (i + 1) / sampleCount);
+      path.points[i][0] = startCoordinates[0] + dx * progress;
+      path.points[i][1] = startCoordinates[1] + dy * progress;
+      path.offsetMillis[i] = durationMillis * (i + 1) / sampleCount;
+    }
+    return path;
+  }
+
+  /**
+   * Returns how many samples go in each move event: at least a frame's worth, and enough that at
+   * most MAX_MOVE_EVENTS are sent.
+   */
+  static int samplesPerEvent(int sampleCount) {
+    return Math.max(FRAME_MS / SAMPLE_INTERVAL_MS,
+        (sampleCount + MAX_MOVE_EVENTS - 1) / MAX_MOVE_EVENTS);
+  }
+
+  /**
+   * The pointer samples of a swipe after its down event, with their offsets from the down event.
+   */
+  static final class Path {
+    final float[][] points;
+    final long[] offsetMillis;
+
+    private Path(int sampleCount) {
+      points = new float[sampleCount][2];
+      offsetMillis = new long[sampleCount];
+    }
+  }
+
+  @Override
+  public String toString() {
+    if (velocity > 0) {
+      return String.format("Fling at %spx/s", velocity);
+    }
+    return String.format("%s %sms", easing, durationMillis);
+  }
+}
@@ -48,7 +48,10 @@ public enum Tap implements Tapper {
         // Factor 1.5 is needed, otherwise a long press is not safely detected.
         // See android.test.TouchUtils longClickView
         long longPressTimeout = (long) (ViewConfiguration.getLongPressTimeout() * 1.5f);
-        uiController.loopMainThreadForAtLeast(longPressTimeout);
+        // counted from when sendDown returned, the deadline is awaited in a single wait.
+        GestureScheduler scheduler = new GestureScheduler(uiController);
+        scheduler.awaitTime(scheduler.timeAt(longPressTimeout));
+        scheduler.logJitter("long press");
 
         if (!MotionEvents.sendUp(uiController, downEvent)) {
           MotionEvents.sendCancel(uiController, downEvent);
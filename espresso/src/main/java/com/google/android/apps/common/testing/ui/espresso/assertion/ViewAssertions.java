@@ -6,7 +6,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static org.hamcrest.Matchers.is;
 
 import com.google.android.apps.common.testing.ui.espresso.NoMatchingViewException;
+import com.google.android.apps.common.testing.ui.espresso.SnapshotAssertion;
 import com.google.android.apps.common.testing.ui.espresso.ViewAssertion;
+import com.google.android.apps.common.testing.ui.espresso.matcher.HierarchySnapshot;
 import com.google.android.apps.common.testing.ui.espresso.util.HumanReadables;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
@@ -40,7 +42,7 @@ public final class ViewAssertions {
    * hierarchy.
    */
   public static ViewAssertion doesNotExist() {
-    return new ViewAssertion() {
+    return new SnapshotAssertion() {
       @Override
       public void check(Optional<View> view, Optional<NoMatchingViewException> noView) {
         if (view.isPresent()) {
@@ -48,6 +50,16 @@ public final class ViewAssertions {
               true, is(false));
         }
       }
+
+      @Override
+      public boolean canCheckSnapshot() {
+        return true;
+      }
+
+      @Override
+      public boolean holdsInSnapshot(HierarchySnapshot snapshot, int index) {
+        return index == -1;
+      }
     };
   }
 
@@ -57,7 +69,7 @@ public final class ViewAssertions {
    */
   public static ViewAssertion matches(final Matcher<? super View> viewMatcher) {
     checkNotNull(viewMatcher);
-    return new ViewAssertion() {
+    return new SnapshotAssertion() {
       @Override
       public void check(Optional<View> view, Optional<NoMatchingViewException> noViewException) {
         StringDescription description = new StringDescription();
@@ -76,6 +88,16 @@ public final class ViewAssertions {
           assertThat(description.toString(), view.get(), viewMatcher);
         }
       }
+
+      @Override
+      public boolean canCheckSnapshot() {
+        return HierarchySnapshot.canMatch(viewMatcher);
+      }
+
+      @Override
+      public boolean holdsInSnapshot(HierarchySnapshot snapshot, int index) {
+        return index != -1 && snapshot.matches(viewMatcher, index);
+      }
     };
   }
 
@@ -89,7 +111,7 @@ public final class ViewAssertions {
    */
   public static ViewAssertion selectedDescendantsMatch(
       final Matcher<View> selector, final Matcher<View> matcher) {
-    return new ViewAssertion() {
+    return new SnapshotAssertion() {
       @SuppressWarnings("unchecked")
       @Override
       public void check(Optional<View> view, Optional<NoMatchingViewException> noViewException) {
@@ -123,6 +145,25 @@ public final class ViewAssertions {
           throw new AssertionFailedError(errorMessage);
         }
       }
+
+      @Override
+      public boolean canCheckSnapshot() {
+        return HierarchySnapshot.canMatch(selector) && HierarchySnapshot.canMatch(matcher);
+      }
+
+      @Override
+      public boolean holdsInSnapshot(HierarchySnapshot snapshot, int index) {
+        if (index == -1) {
+          return false;
+        }
+        // the selected view itself is part of the traversal, just like in check.
+        for (int i = index; i < snapshot.getSubtreeEnd(index); i++) {
+          if (snapshot.matches(selector, i) && !snapshot.matches(matcher, i)) {
+            return false;
+          }
+        }
+        return true;
+      }
     };
   }
 }
@@ -7,11 +7,11 @@ import com.google.android.apps.common.testing.testrunner.inject.TargetContext;
 import com.google.android.apps.common.testing.ui.espresso.FailureHandler;
 import com.google.android.apps.common.testing.ui.espresso.Root;
 import com.google.android.apps.common.testing.ui.espresso.UiController;
+import com.google.android.apps.common.testing.ui.espresso.util.ResourceResolver;
 import com.google.common.base.Optional;
 
 import android.content.Context;
 import android.os.Build;
-import android.os.Handler;
 import android.os.Looper;
 
 import dagger.Module;
@@ -29,7 +29,8 @@ import javax.inject.Singleton;
  * Dagger module for creating the implementation classes within the base package.
  */
 @Module(library = true, injects = {
-    BaseLayerModule.FailureHandlerHolder.class, FailureHandler.class})
+    BaseLayerModule.FailureHandlerHolder.class, FailureHandler.class, MainThreadExecutor.class,
+    InProcessEventInjectionStrategy.class, ResourceResolver.class})
 public class BaseLayerModule {
 
   @Provides @Singleton
@@ -39,6 +40,11 @@ public class BaseLayerModule {
     return ActivityLifecycleMonitorRegistry.getInstance();
   }
 
+  @Provides @Singleton
+  public ResourceResolver provideResourceResolver() {
+    return new ResourceResolver();
+  }
+
   @Provides @TargetContext
   public Context provideTargetContext() {
     // TODO(user): replace with installation of AndroidInstrumentationModule once
@@ -68,14 +74,8 @@ public class BaseLayerModule {
   }
 
   @Provides @Singleton @MainThread
-  public Executor provideMainThreadExecutor(Looper mainLooper) {
-    final Handler handler = new Handler(mainLooper);
-    return new Executor() {
-      @Override
-      public void execute(Runnable runnable) {
-        handler.post(runnable);
-      }
-    };
+  public Executor provideMainThreadExecutor(MainThreadExecutor executor) {
+    return executor;
   }
 
   @Provides @Singleton @SdkAsyncTask
@@ -91,7 +91,13 @@ public class BaseLayerModule {
   }
 
   @Provides @Singleton
-  public EventInjector provideEventInjector() {
+  public EventInjector provideEventInjector(InProcessEventInjectionStrategy injectionStrategy) {
+    return new EventInjector(injectionStrategy);
+  }
+
+  @Provides @Singleton
+  public InProcessEventInjectionStrategy provideInProcessEventInjectionStrategy(
+      RootsOracle rootsOracle, Looper mainLooper) {
     // On API 16 and above, android uses input manager to inject events. On API < 16,
     // they use Window Manager. So we need to create our InjectionStrategy depending on the api
     // level. Instrumentation does not check if the event presses went through by checking the
@@ -113,7 +119,8 @@ public class BaseLayerModule {
       throw new RuntimeException(
           "API Level 6 and below is not supported. You are running: " + sdkVersion);
     }
-    return new EventInjector(injectionStrategy);
+    // events only bypass the platform strategy once in process dispatch is enabled.
+    return new InProcessEventInjectionStrategy(injectionStrategy, rootsOracle, mainLooper);
   }
 
   /**
@@ -0,0 +1,247 @@
+package com.google.android.apps.common.testing.ui.espresso.base;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+
+import com.google.android.apps.common.testing.ui.espresso.InjectEventSecurityException;
+import com.google.android.apps.common.testing.ui.espresso.Root;
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+
+import android.annotation.SuppressLint;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.InputDevice;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.WindowManager;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * An {@link EventInjectionStrategy} which, once enabled, hands events meant for the application's
+ * own windows straight to their view hierarchies on the main thread, rather than injecting them
+ * through the system server. This saves an IPC round trip per event. Disabled by default.
+ * <p>
+ * Every event this strategy cannot prove to be ours goes to the platform strategy instead, which
+ * keeps rejecting events for foreign windows with an {@link InjectEventSecurityException}:
+ * </p>
+ * <ul>
+ * <li>a touch gesture is dispatched directly if it starts within one of our windows, no modal
+ *   window of ours above it would have claimed it, that window has window focus and the point is
+ *   within its visible display frame. All events of a gesture take the same route.
+ * <li>a key event is dispatched directly to our focused window, unless it is a system key or a
+ *   navigation key, as moving focus and system key handling happen outside the view hierarchy.
+ * </ul>
+ * <p>
+ * The application cannot see windows of other processes, only their effects on its own windows: a
+ * system dialog or the notification shade takes window focus away, and the soft keyboard is cut
+ * out of the visible display frame. Either sends the gesture to the platform, so that a touch our
+ * view would not get for real does not reach it beneath such a window.
+ * </p>
+ * <p>
+ * Events are handed to the decor view's dispatchTouchEvent and dispatchKeyEvent, which bypasses
+ * the window's ViewRootImpl and its input stages. In particular, directly dispatched touches do not
+ * put the window into touch mode, and directly dispatched key events skip the input method stage,
+ * so an IME never sees them. Tests relying on either should keep this strategy disabled.
+ * </p>
+ */
+public final class InProcessEventInjectionStrategy implements EventInjectionStrategy {
+
+  private final EventInjectionStrategy platformStrategy;
+  private final RootsOracle rootsOracle;
+  private final Looper mainLooper;
+  private final Handler mainHandler;
+
+  private volatile boolean enabled;
+
+  // the route of the current touch gesture, only used on the main thread.
+  private long gestureDownTime = -1;
+  private View gestureDecorView;
+
+  InProcessEventInjectionStrategy(EventInjectionStrategy platformStrategy, RootsOracle rootsOracle,
+      Looper mainLooper) {
+    this.platformStrategy = checkNotNull(platformStrategy);
+    this.rootsOracle = checkNotNull(rootsOracle);
+    this.mainLooper = checkNotNull(mainLooper);
+    this.mainHandler = new Handler(mainLooper);
+  }
+
+  /**
+   * Enables or disables dispatching events directly into the application's windows.
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  @Override
+  public boolean injectKeyEvent(final KeyEvent keyEvent) throws InjectEventSecurityException {
+    if (!enabled || keyEvent.isSystem() || isNavigationKey(keyEvent.getKeyCode())) {
+      return platformStrategy.injectKeyEvent(keyEvent);
+    }
+    Optional<Boolean> dispatched = onMainThread(new Callable<Optional<Boolean>>() {
+      @Override
+      public Optional<Boolean> call() {
+        for (Root root : rootsOracle.get()) {
+          View decorView = root.getDecorView();
+          if (decorView.hasWindowFocus()) {
+            decorView.dispatchKeyEvent(keyEvent);
+            return Optional.of(true);
+          }
+        }
+        return Optional.absent();
+      }
+    });
+    return dispatched.isPresent() ? dispatched.get() : platformStrategy.injectKeyEvent(keyEvent);
+  }
+
+  @Override
+  public boolean injectMotionEvent(final MotionEvent motionEvent)
+      throws InjectEventSecurityException {
+    if (!enabled) {
+      return platformStrategy.injectMotionEvent(motionEvent);
+    }
+    Optional<Boolean> dispatched = onMainThread(new Callable<Optional<Boolean>>() {
+      @Override
+      public Optional<Boolean> call() {
+        return dispatchTouch(motionEvent);
+      }
+    });
+    return dispatched.isPresent()
+        ? dispatched.get() : platformStrategy.injectMotionEvent(motionEvent);
+  }
+
+  // returns absent if the platform strategy has to inject the event.
+  @SuppressLint("NewApi")
+  private Optional<Boolean> dispatchTouch(MotionEvent motionEvent) {
+    if (motionEvent.getActionMasked() == MotionEvent.ACTION_DOWN) {
+      gestureDownTime = motionEvent.getDownTime();
+      gestureDecorView = findTouchedDecorView(motionEvent.getRawX(), motionEvent.getRawY());
+    } else if (motionEvent.getDownTime() != gestureDownTime) {
+      // not part of a gesture we know the route of.
+      return Optional.absent();
+    }
+    View decorView = gestureDecorView;
+    if (null == decorView) {
+      return Optional.absent();
+    }
+    if (null == decorView.getWindowToken()) {
+      // the window went away in the middle of the gesture.
+      return Optional.of(false);
+    }
+    int[] location = new int[2];
+    decorView.getLocationOnScreen(location);
+    MotionEvent windowEvent = MotionEvent.obtain(motionEvent);
+    try {
+      windowEvent.offsetLocation(-location[0], -location[1]);
+      if (Build.VERSION.SDK_INT >= 12
+          && (windowEvent.getSource() & InputDevice.SOURCE_CLASS_POINTER) == 0) {
+        windowEvent.setSource(InputDevice.SOURCE_TOUCHSCREEN);
+      }
+      decorView.dispatchTouchEvent(windowEvent);
+    } finally {
+      windowEvent.recycle();
+    }
+    return Optional.of(true);
+  }
+
+  // returns null if the touch is not provably ours.
+  private View findTouchedDecorView(float screenX, float screenY) {
+    // windows of a higher type are stacked above, like RootViewPicker ranks them. Among windows of
+    // the same type, the later ones were added last and are above (the sort is stable).
+    List<Root> roots = Lists.newArrayList(rootsOracle.get());
+    Collections.sort(roots, BY_WINDOW_TYPE);
+    int[] location = new int[2];
+    for (int i = roots.size() - 1; i >= 0; i--) {
+      Root root = roots.get(i);
+      View decorView = root.getDecorView();
+      if (!decorView.isShown()) {
+        continue;
+      }
+      int flags = root.getWindowLayoutParams().isPresent()
+          ? root.getWindowLayoutParams().get().flags : 0;
+      if ((flags & WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE) != 0) {
+        continue;
+      }
+      decorView.getLocationOnScreen(location);
+      if (screenX >= location[0] && screenX < location[0] + decorView.getWidth()
+          && screenY >= location[1] && screenY < location[1] + decorView.getHeight()) {
+        return isUncovered(decorView, screenX, screenY) ? decorView : null;
+      }
+      if ((flags & (WindowManager.LayoutParams.FLAG_NOT_TOUCH_MODAL
+          | WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE)) == 0) {
+        // a modal window takes touches outside of it too, leave that to the window manager.
+        return null;
+      }
+    }
+    return null;
+  }
+
+  // whether no window of another process is above the window at the given point.
+  private static boolean isUncovered(View decorView, float screenX, float screenY) {
+    if (!decorView.hasWindowFocus()) {
+      return false;
+    }
+    // excludes the soft keyboard (and system bars), in screen coordinates.
+    Rect visibleFrame = new Rect();
+    decorView.getWindowVisibleDisplayFrame(visibleFrame);
+    return visibleFrame.contains((int) screenX, (int) screenY);
+  }
+
+  private static final Comparator<Root> BY_WINDOW_TYPE = new Comparator<Root>() {
+    @Override
+    public int compare(Root left, Root right) {
+      int leftType = windowType(left);
+      int rightType = windowType(right);
+      return leftType < rightType ? -1 : (leftType == rightType ? 0 : 1);
+    }
+  };
+
+  private static int windowType(Root root) {
+    return root.getWindowLayoutParams().isPresent() ? root.getWindowLayoutParams().get().type : 0;
+  }
+
+  private static boolean isNavigationKey(int keyCode) {
+    switch (keyCode) {
+      case KeyEvent.KEYCODE_DPAD_UP:
+      case KeyEvent.KEYCODE_DPAD_DOWN:
+      case KeyEvent.KEYCODE_DPAD_LEFT:
+      case KeyEvent.KEYCODE_DPAD_RIGHT:
+      case KeyEvent.KEYCODE_DPAD_CENTER:
+      case KeyEvent.KEYCODE_TAB:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  // injection strategies are called off the main thread, while the main thread loops.
+  private <T> T onMainThread(Callable<T> callable) {
+    FutureTask<T> task = new FutureTask<T>(callable);
+    if (Looper.myLooper() == mainLooper) {
+      task.run();
+    } else {
+      mainHandler.post(task);
+    }
+    try {
+      return task.get();
+    } catch (ExecutionException ee) {
+      throw propagate(ee.getCause());
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw propagate(ie);
+    }
+  }
+}
@@ -0,0 +1,198 @@
+package com.google.android.apps.common.testing.ui.espresso.base;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Runs Espresso's tasks on the main thread one at a time, in the order they were submitted.
+ * <p>
+ * Interactions loop the main thread while they wait for the application to idle, which dispatches
+ * any message already in the queue - including the next interaction, if it was posted directly.
+ * This executor only posts a task once the previous one has returned, so interactions submitted
+ * ahead of time (e.g. by performAsync) still run strictly one after the other.
+ * </p>
+ * <p>
+ * In priority mode tasks are posted at the front of the main queue, so an interaction does not
+ * wait behind a backlog of application messages before it can start synchronizing with the
+ * application (which then drains that backlog as usual). As a simple fairness cap, when tasks were
+ * submitted ahead of time and run back to back, at most {@link #MAX_CONSECUTIVE_FRONT_POSTS} of
+ * them in a row are posted at the front before one is posted normally, behind whatever the
+ * application queued meanwhile. The count starts over whenever the executor runs out of tasks, so
+ * an interaction submitted on its own is always posted at the front.
+ * </p>
+ * <p>
+ * A task posted at the front would also be dispatched ahead of a sync barrier, i.e. before the
+ * layout and drawing the barrier holds the queue for, and could then act on views that are not
+ * laid out yet. So whenever the main queue starts with a sync barrier, the task is posted normally
+ * instead, behind the barrier, even in priority mode.
+ * </p>
+ * <p>
+ * How long tasks waited in the main queue is recorded under the same lock as the pending tasks,
+ * so the statistics may be read or reset from any thread at any time.
+ * </p>
+ */
+@Singleton
+public final class MainThreadExecutor implements Executor {
+
+  private static final String TAG = MainThreadExecutor.class.getSimpleName();
+
+  static final int MAX_CONSECUTIVE_FRONT_POSTS = 3;
+
+  private final Handler handler;
+  private final QueueInterrogator queueInterrogator;
+  private final Queue<Runnable> pending = new LinkedList<Runnable>();
+  private boolean running;
+  private volatile boolean priorityMode;
+  private int consecutiveFrontPosts;
+  private long postedNanos;
+
+  // guarded by pending.
+  private int queueWaitCount;
+  private long totalQueueWaitNanos;
+  private long maxQueueWaitNanos;
+  private long lastQueueWaitNanos;
+
+  private final Runnable runNext = new Runnable() {
+    @Override
+    public void run() {
+      Runnable task;
+      synchronized (pending) {
+        task = pending.poll();
+        recordQueueWait(System.nanoTime() - postedNanos);
+      }
+      try {
+        task.run();
+      } finally {
+        synchronized (pending) {
+          if (pending.isEmpty()) {
+            running = false;
+            // the next interaction does not compete with this one for the queue.
+            consecutiveFrontPosts = 0;
+          } else {
+            postNext(isSyncBarrierPending());
+          }
+        }
+      }
+    }
+  };
+
+  @Inject
+  MainThreadExecutor(Looper mainLooper) {
+    this.handler = new Handler(checkNotNull(mainLooper));
+    this.queueInterrogator = new QueueInterrogator(mainLooper);
+    // the first look finds the main queue, which from another thread waits for the main thread.
+    // Done here, so submitting tasks never waits for a main thread that may be busy.
+    queueInterrogator.determineQueueState();
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    checkNotNull(task);
+    boolean syncBarrierPending = isSyncBarrierPending();
+    synchronized (pending) {
+      pending.add(task);
+      if (!running) {
+        running = true;
+        postNext(syncBarrierPending);
+      }
+    }
+  }
+
+  /**
+   * Enables or disables priority mode (disabled by default).
+   */
+  public void setPriorityMode(boolean priorityMode) {
+    this.priorityMode = priorityMode;
+  }
+
+  /**
+   * Returns the number of tasks run since the statistics were last reset.
+   */
+  public int getQueueWaitCount() {
+    synchronized (pending) {
+      return queueWaitCount;
+    }
+  }
+
+  /**
+   * Returns the total time tasks spent in the main queue, from being posted to being dispatched,
+   * since the statistics were last reset.
+   */
+  public long getTotalQueueWaitNanos() {
+    synchronized (pending) {
+      return totalQueueWaitNanos;
+    }
+  }
+
+  /**
+   * Returns the longest time a task spent in the main queue since the statistics were last reset.
+   */
+  public long getMaxQueueWaitNanos() {
+    synchronized (pending) {
+      return maxQueueWaitNanos;
+    }
+  }
+
+  /**
+   * Returns the time the most recently dispatched task, e.g. the last interaction, spent in the
+   * main queue, or 0 if no task ran since the statistics were last reset.
+   */
+  public long getLastQueueWaitNanos() {
+    synchronized (pending) {
+      return lastQueueWaitNanos;
+    }
+  }
+
+  /**
+   * Resets the queue wait statistics.
+   */
+  public void resetQueueWaitStats() {
+    synchronized (pending) {
+      queueWaitCount = 0;
+      totalQueueWaitNanos = 0;
+      maxQueueWaitNanos = 0;
+      lastQueueWaitNanos = 0;
+    }
+  }
+
+  private boolean isSyncBarrierPending() {
+    return priorityMode
+        && queueInterrogator.determineQueueState() == QueueInterrogator.QueueState.BARRIER;
+  }
+
+  // guarded by pending.
+  private void postNext(boolean syncBarrierPending) {
+    postedNanos = System.nanoTime();
+    if (priorityMode && !syncBarrierPending
+        && consecutiveFrontPosts < MAX_CONSECUTIVE_FRONT_POSTS) {
+      consecutiveFrontPosts++;
+      handler.postAtFrontOfQueue(runNext);
+    } else {
+      consecutiveFrontPosts = 0;
+      handler.post(runNext);
+    }
+  }
+
+  // guarded by pending.
+  private void recordQueueWait(long waitNanos) {
+    queueWaitCount++;
+    lastQueueWaitNanos = waitNanos;
+    totalQueueWaitNanos += waitNanos;
+    if (waitNanos > maxQueueWaitNanos) {
+      maxQueueWaitNanos = waitNanos;
+    }
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, String.format("Task waited %sus in the main queue.", waitNanos / 1000));
+    }
+  }
+}
@@ -48,7 +48,7 @@ public final class RootViewPicker implements Provider<View> {
   private List<Root> roots;
 
   @Inject
-  RootViewPicker(Provider<List<Root>> rootsOracle, UiController uiController,
+  public RootViewPicker(Provider<List<Root>> rootsOracle, UiController uiController,
       ActivityLifecycleMonitor activityLifecycleMonitor,
       AtomicReference<Matcher<Root>> rootMatcherRef) {
     this.rootsOracle = rootsOracle;
@@ -11,6 +11,7 @@ import com.google.android.apps.common.testing.ui.espresso.InjectEventSecurityExc
 import com.google.android.apps.common.testing.ui.espresso.UiController;
 import com.google.android.apps.common.testing.ui.espresso.base.IdlingResourceRegistry.IdleNotificationCallback;
 import com.google.android.apps.common.testing.ui.espresso.base.QueueInterrogator.QueueState;
+import com.google.android.apps.common.testing.ui.espresso.matcher.ViewQueryScope;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
@@ -464,6 +465,8 @@ final class UiControllerImpl implements UiController, Handler.Callback {
             "ESP_TRACE",
             String.format("%s: MessageQueue.next(): %s, with target: %s, callback: %s", TAG,
               messageString, message.getTarget().getClass().getCanonicalName(), callbackString));
+        // whatever the message does may change the hierarchy under an open query scope.
+        ViewQueryScope.invalidate();
         message.getTarget().dispatchMessage(message);
         message.recycle();
         loopCount++;
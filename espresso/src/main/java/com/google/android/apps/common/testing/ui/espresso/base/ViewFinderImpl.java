@@ -1,6 +1,7 @@
 package com.google.android.apps.common.testing.ui.espresso.base;
 
 import static com.google.android.apps.common.testing.ui.espresso.util.TreeIterables.breadthFirstViewTraversal;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
@@ -8,6 +9,7 @@ import com.google.android.apps.common.testing.ui.espresso.AmbiguousViewMatcherEx
 import com.google.android.apps.common.testing.ui.espresso.NoMatchingViewException;
 import com.google.android.apps.common.testing.ui.espresso.ViewFinder;
 import com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers;
+import com.google.android.apps.common.testing.ui.espresso.matcher.ViewQueryScope;
 import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
@@ -17,6 +19,7 @@ import com.google.common.collect.Lists;
 
 import android.os.Looper;
 import android.view.View;
+import android.view.ViewParent;
 import android.widget.AdapterView;
 
 import org.hamcrest.Matcher;
@@ -38,7 +41,7 @@ public final class ViewFinderImpl implements ViewFinder {
   private final Provider<View> rootViewProvider;
 
   @Inject
-  ViewFinderImpl(Matcher<View> viewMatcher, Provider<View> rootViewProvider) {
+  public ViewFinderImpl(Matcher<View> viewMatcher, Provider<View> rootViewProvider) {
     this.viewMatcher = viewMatcher;
     this.rootViewProvider = rootViewProvider;
   }
@@ -46,57 +49,167 @@ public final class ViewFinderImpl implements ViewFinder {
   @Override
   public View getView() throws AmbiguousViewMatcherException, NoMatchingViewException {
     checkMainThread();
-    final Predicate<View> matcherPredicate = new MatcherPredicateAdapter<View>(
-        checkNotNull(viewMatcher));
+    // matchers share memoized results for the duration of this lookup only.
+    ViewQueryScope scope = ViewQueryScope.begin();
+    try {
+      return findView(rootViewProvider.get());
+    } finally {
+      scope.end();
+    }
+  }
+
+  /**
+   * Returns whether a view found by an earlier lookup is still in the hierarchy under root and
+   * still matched by the view matcher, which only takes a walk up to the root instead of a
+   * traversal of the whole hierarchy. Views that started matching since the lookup are not
+   * detected, so the earlier result must only be reused while nothing else could have changed,
+   * e.g. between the actions of a single perform call. Must be called on the main thread.
+   */
+  public static boolean isStillMatchedUnder(Matcher<View> viewMatcher, View view, View root) {
+    ViewParent parent = view.getParent();
+    boolean underRoot = view == root;
+    while (!underRoot && parent instanceof View) {
+      underRoot = parent == root;
+      parent = parent.getParent();
+    }
+    return underRoot && viewMatcher.matches(view);
+  }
+
+  private View findView(View root)
+      throws AmbiguousViewMatcherException, NoMatchingViewException {
+    return findView(checkNotNull(viewMatcher), root);
+  }
+
+  /**
+   * Returns the only view in the hierarchy under root matched by the view matcher, like a lookup
+   * through a view finder but without reusing an earlier result. Must be called on the main
+   * thread, within a {@link ViewQueryScope}.
+   *
+   * @throws NoMatchingViewException if no view matched.
+   * @throws AmbiguousViewMatcherException if more than one view matched.
+   */
+  public static View findView(Matcher<View> viewMatcher, View root)
+      throws AmbiguousViewMatcherException, NoMatchingViewException {
+    final Predicate<View> matcherPredicate = new MatcherPredicateAdapter<View>(viewMatcher);
 
-    View root = rootViewProvider.get();
     Iterator<View> matchedViewIterator = Iterables.filter(
         breadthFirstViewTraversal(root),
         matcherPredicate).iterator();
 
-    View matchedView = null;
-
-    while (matchedViewIterator.hasNext()) {
-      if (matchedView != null) {
-        // Ambiguous!
-        throw new AmbiguousViewMatcherException.Builder()
-            .withViewMatcher(viewMatcher)
-            .withRootView(root)
-            .withView1(matchedView)
-            .withView2(matchedViewIterator.next())
-            .withOtherAmbiguousViews(Iterators.toArray(matchedViewIterator, View.class))
-            .build();
-      } else {
-        matchedView = matchedViewIterator.next();
-      }
+    if (!matchedViewIterator.hasNext()) {
+      throw getLookupException(viewMatcher, root, Lists.<View>newArrayList());
     }
-    if (null == matchedView) {
-      final Predicate<View> adapterViewPredicate = new MatcherPredicateAdapter<View>(
-          ViewMatchers.isAssignableFrom(AdapterView.class));
-      List<View> adapterViews = Lists.newArrayList(
-          Iterables.filter(breadthFirstViewTraversal(root), adapterViewPredicate).iterator());
-      if (adapterViews.isEmpty()) {
-        throw new NoMatchingViewException.Builder()
-            .withViewMatcher(viewMatcher)
-            .withRootView(root)
-            .build();
-      }
+    View matchedView = matchedViewIterator.next();
+    if (matchedViewIterator.hasNext()) {
+      // Ambiguous!
+      List<View> matchedViews = Lists.newArrayList(matchedView);
+      Iterators.addAll(matchedViews, matchedViewIterator);
+      throw getLookupException(viewMatcher, root, matchedViews);
+    }
+    return matchedView;
+  }
+
+  /**
+   * Returns the exception a lookup fails with when the view matcher matched none or more than one
+   * of the views in the hierarchy under root. Must be called on the main thread.
+   *
+   * @param matchedViews all the views the matcher matched, in breadth first order.
+   */
+  public static RuntimeException getLookupException(Matcher<View> viewMatcher, View root,
+      List<View> matchedViews) {
+    checkArgument(matchedViews.size() != 1, "Exactly one view matched, the lookup succeeded.");
+    if (matchedViews.size() > 1) {
+      return new AmbiguousViewMatcherException.Builder()
+          .withViewMatcher(viewMatcher)
+          .withRootView(root)
+          .withView1(matchedViews.get(0))
+          .withView2(matchedViews.get(1))
+          .withOtherAmbiguousViews(
+              matchedViews.subList(2, matchedViews.size()).toArray(new View[0]))
+          .build();
+    }
+
+    final Predicate<View> adapterViewPredicate = new MatcherPredicateAdapter<View>(
+        ViewMatchers.isAssignableFrom(AdapterView.class));
+    List<View> adapterViews = Lists.newArrayList(
+        Iterables.filter(breadthFirstViewTraversal(root), adapterViewPredicate).iterator());
+    if (adapterViews.isEmpty()) {
+      return new NoMatchingViewException.Builder()
+          .withViewMatcher(viewMatcher)
+          .withRootView(root)
+          .build();
+    }
+
+    String warning = String.format("\nIf the target view is not part of the view hierarchy, you "
+      + "may need to use Espresso.onData to load it from one of the following AdapterViews:%s"
+      , Joiner.on("\n- ").join(adapterViews));
+    return new NoMatchingViewException.Builder()
+        .withViewMatcher(viewMatcher)
+        .withRootView(root)
+        .withAdapterViews(adapterViews)
+        .withAdapterViewWarning(Optional.of(warning))
+        .build();
+  }
 
-      String warning = String.format("\nIf the target view is not part of the view hierarchy, you "
-        + "may need to use Espresso.onData to load it from one of the following AdapterViews:%s"
-        , Joiner.on("\n- ").join(adapterViews));
+  /**
+   * Returns the view at the given index among the views matched by the view matcher, in breadth
+   * first order. Unlike a regular lookup, the traversal stops as soon as that view is found and
+   * further matches are not considered ambiguous. Must be called on the main thread.
+   *
+   * @throws NoMatchingViewException if the matcher matches index views or fewer.
+   */
+  public static View getViewAt(Matcher<View> viewMatcher, View root, int index)
+      throws NoMatchingViewException {
+    checkArgument(index >= 0, "index must be positive: %s", index);
+    checkMainThread();
+    ViewQueryScope scope = ViewQueryScope.begin();
+    try {
+      int matchCount = 0;
+      for (View view : breadthFirstViewTraversal(root)) {
+        if (viewMatcher.matches(view)) {
+          if (matchCount == index) {
+            return view;
+          }
+          matchCount++;
+        }
+      }
+      if (matchCount == 0) {
+        throw getLookupException(viewMatcher, root, Lists.<View>newArrayList());
+      }
       throw new NoMatchingViewException.Builder()
           .withViewMatcher(viewMatcher)
           .withRootView(root)
-          .withAdapterViews(adapterViews)
-          .withAdapterViewWarning(Optional.of(warning))
+          .withMessage(String.format("Only %s views matched: %s, there is no match at index %s.",
+              matchCount, viewMatcher, index))
           .build();
-    } else {
-      return matchedView;
+    } finally {
+      scope.end();
+    }
+  }
+
+  /**
+   * Counts the views matched by the view matcher, stopping at limit matches. Nothing is built to
+   * describe the hierarchy, whatever the result. Must be called on the main thread.
+   */
+  public static int countMatches(Matcher<View> viewMatcher, View root, int limit) {
+    checkArgument(limit >= 0, "limit must be positive: %s", limit);
+    checkMainThread();
+    ViewQueryScope scope = ViewQueryScope.begin();
+    try {
+      int matchCount = 0;
+      Iterator<View> views = breadthFirstViewTraversal(root).iterator();
+      while (matchCount < limit && views.hasNext()) {
+        if (viewMatcher.matches(views.next())) {
+          matchCount++;
+        }
+      }
+      return matchCount;
+    } finally {
+      scope.end();
     }
   }
 
-  private void checkMainThread() {
+  private static void checkMainThread() {
     checkState(Thread.currentThread().equals(Looper.getMainLooper().getThread()),
         "Executing a query on the view hierarchy outside of the main thread (on: %s)",
         Thread.currentThread().getName());
@@ -0,0 +1,153 @@
+package com.google.android.apps.common.testing.ui.espresso.matcher;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.Visibility;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Effective visibility and visible bounds of every view in a hierarchy, shared by the display
+ * matchers for the lifetime of a {@link ViewQueryScope}.
+ * <p>
+ * Effective visibility is computed for every view in one top-down pass, so answering it no longer
+ * walks the ancestors of each candidate. The clipped global bounds of a view are obtained from
+ * {@link View#getGlobalVisibleRect} (which knows about scrolling, padding and transformations on
+ * every API level) the first time they are asked for and reused afterwards. Everything is kept in
+ * primitive arrays indexed by the view's position in the traversal.
+ * </p>
+ */
+final class HierarchyGeometry {
+
+  // effective visibility flags, also used by HierarchySnapshot.
+  static final byte ALL_VISIBLE = 1;
+  private static final byte SOME_INVISIBLE = 2;
+  private static final byte SOME_GONE = 4;
+
+  private static final byte BOUNDS_UNKNOWN = 0;
+  private static final byte BOUNDS_VISIBLE = 1;
+  private static final byte BOUNDS_NOT_VISIBLE = 2;
+
+  private final Map<View, Integer> indices;
+  private final View[] views;
+  private final byte[] visibilityFlags;
+  private final byte[] boundsStates;
+  private final int[] bounds;
+  private final Rect scratch = new Rect();
+
+  private HierarchyGeometry(List<View> views, byte[] visibilityFlags) {
+    this.views = views.toArray(new View[views.size()]);
+    this.visibilityFlags = visibilityFlags;
+    this.indices = Maps.newIdentityHashMap();
+    for (int i = 0; i < this.views.length; i++) {
+      indices.put(this.views[i], i);
+    }
+    this.boundsStates = new byte[this.views.length];
+    this.bounds = new int[this.views.length * 4];
+  }
+
+  /**
+   * Captures the visibility of every view in the hierarchy rooted at root.
+   */
+  static HierarchyGeometry capture(View root) {
+    checkNotNull(root);
+    List<View> views = Lists.newArrayList();
+    byte[] flags = new byte[16];
+    views.add(root);
+    flags[0] = combine(ALL_VISIBLE, root.getVisibility());
+    // breadth first: a parent's flags are always known before its children are visited.
+    for (int i = 0; i < views.size(); i++) {
+      View view = views.get(i);
+      if (view instanceof ViewGroup) {
+        ViewGroup group = (ViewGroup) view;
+        for (int c = 0; c < group.getChildCount(); c++) {
+          View child = group.getChildAt(c);
+          if (views.size() == flags.length) {
+            byte[] grown = new byte[flags.length * 2];
+            System.arraycopy(flags, 0, grown, 0, flags.length);
+            flags = grown;
+          }
+          flags[views.size()] = combine(flags[i], child.getVisibility());
+          views.add(child);
+        }
+      }
+    }
+    return new HierarchyGeometry(views, flags);
+  }
+
+  /**
+   * Returns the effective visibility flags of a view with the given visibility whose parent has
+   * the given flags. The root's flags are combine(ALL_VISIBLE, root.getVisibility()).
+   */
+  static byte combine(byte parentFlags, int visibility) {
+    switch (visibility) {
+      case View.VISIBLE:
+        return parentFlags;
+      case View.INVISIBLE:
+        return (byte) ((parentFlags & ~ALL_VISIBLE) | SOME_INVISIBLE);
+      case View.GONE:
+        return (byte) ((parentFlags & ~ALL_VISIBLE) | SOME_GONE);
+      default:
+        return (byte) (parentFlags & ~ALL_VISIBLE);
+    }
+  }
+
+  /**
+   * Returns the traversal index of the view, or -1 if it is not part of this hierarchy.
+   */
+  int indexOf(View view) {
+    Integer index = indices.get(view);
+    return null == index ? -1 : index;
+  }
+
+  /**
+   * Same semantics as {@link ViewMatchers#withEffectiveVisibility}.
+   */
+  boolean hasEffectiveVisibility(int index, Visibility visibility) {
+    return hasEffectiveVisibility(visibilityFlags[index], visibility);
+  }
+
+  static boolean hasEffectiveVisibility(byte flags, Visibility visibility) {
+    switch (visibility) {
+      case VISIBLE:
+        return (flags & ALL_VISIBLE) != 0;
+      case INVISIBLE:
+        return (flags & SOME_INVISIBLE) != 0;
+      case GONE:
+        return (flags & SOME_GONE) != 0;
+      default:
+        throw new IllegalArgumentException("Unknown visibility: " + visibility);
+    }
+  }
+
+  /**
+   * Returns the area of the view that is visible on screen, or -1 if no part of it is (see
+   * {@link View#getGlobalVisibleRect(Rect)}).
+   */
+  double getVisibleArea(int index) {
+    if (boundsStates[index] == BOUNDS_UNKNOWN) {
+      if (views[index].getGlobalVisibleRect(scratch)) {
+        boundsStates[index] = BOUNDS_VISIBLE;
+        bounds[index * 4] = scratch.left;
+        bounds[index * 4 + 1] = scratch.top;
+        bounds[index * 4 + 2] = scratch.right;
+        bounds[index * 4 + 3] = scratch.bottom;
+      } else {
+        boundsStates[index] = BOUNDS_NOT_VISIBLE;
+      }
+    }
+    if (boundsStates[index] == BOUNDS_NOT_VISIBLE) {
+      return -1;
+    }
+    double width = bounds[index * 4 + 2] - bounds[index * 4];
+    double height = bounds[index * 4 + 3] - bounds[index * 4 + 1];
+    return width * height;
+  }
+}
@@ -0,0 +1,296 @@
+package com.google.android.apps.common.testing.ui.espresso.matcher;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.android.apps.common.testing.ui.espresso.matcher.ViewMatchers.Visibility;
+import com.google.common.collect.Lists;
+
+import android.graphics.Rect;
+import android.os.Looper;
+import android.text.SpannedString;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Checkable;
+import android.widget.TextView;
+
+import org.hamcrest.Matcher;
+
+import java.util.List;
+
+/**
+ * An immutable copy of the properties the standard {@link ViewMatchers} read from every view in a
+ * hierarchy.
+ * <p>
+ * A snapshot is captured on the main thread in a single pass and can then be read from any thread,
+ * so matchers implementing {@link SnapshotMatcher} can be evaluated without blocking the
+ * application's UI. Views are numbered in depth first pre-order (the root is 0), so the
+ * descendants of view i are exactly the views i + 1 (inclusive) to getSubtreeEnd(i) (exclusive).
+ * Properties are stored column-wise in arrays indexed by that number.
+ * </p>
+ * <p>
+ * Large snapshots are matched by several threads at once (see {@link #indicesMatching}), so
+ * snapshot matchers and the matchers they delegate to must be thread safe. All the matchers in
+ * ViewMatchers are.
+ * </p>
+ */
+public final class HierarchySnapshot {
+
+  private static final int ENABLED = 1;
+  private static final int FOCUSABLE = 1 << 1;
+  private static final int HAS_FOCUS = 1 << 2;
+  private static final int CLICKABLE = 1 << 3;
+  private static final int CHECKABLE = 1 << 4;
+  private static final int CHECKED = 1 << 5;
+  private static final int VISIBLE_AT_ALL = 1 << 6;
+  private static final int ROOT = 1 << 7;
+
+  private final int size;
+  private final int[] parents;
+  private final int[] subtreeEnds;
+  private final int[] ids;
+  private final Class<?>[] classes;
+  private final String[] texts;
+  private final CharSequence[] contentDescriptions;
+  private final int[] flags;
+  private final byte[] visibilities;
+  private final int[] sizes;
+  private final int[] visibleBounds;
+
+  private HierarchySnapshot(int size) {
+    this.size = size;
+    this.parents = new int[size];
+    this.subtreeEnds = new int[size];
+    this.ids = new int[size];
+    this.classes = new Class<?>[size];
+    this.texts = new String[size];
+    this.contentDescriptions = new CharSequence[size];
+    this.flags = new int[size];
+    this.visibilities = new byte[size];
+    this.sizes = new int[size * 2];
+    this.visibleBounds = new int[size * 4];
+  }
+
+  /**
+   * Captures the hierarchy rooted at root. Must be called on the main thread.
+   */
+  public static HierarchySnapshot capture(View root) {
+    checkNotNull(root);
+    checkState(Looper.myLooper() == Looper.getMainLooper(), "Expecting to be on main thread!");
+    List<View> views = Lists.newArrayList();
+    List<Integer> parents = Lists.newArrayList();
+    // depth first, pre-order: children are pushed in reverse so they are visited in order.
+    List<View> stack = Lists.newArrayList();
+    List<Integer> stackParents = Lists.newArrayList();
+    stack.add(root);
+    stackParents.add(-1);
+    while (!stack.isEmpty()) {
+      View view = stack.remove(stack.size() - 1);
+      int parent = stackParents.remove(stackParents.size() - 1);
+      int index = views.size();
+      views.add(view);
+      parents.add(parent);
+      if (view instanceof ViewGroup) {
+        ViewGroup group = (ViewGroup) view;
+        for (int c = group.getChildCount() - 1; c >= 0; c--) {
+          stack.add(group.getChildAt(c));
+          stackParents.add(index);
+        }
+      }
+    }
+
+    HierarchySnapshot snapshot = new HierarchySnapshot(views.size());
+    Rect scratch = new Rect();
+    for (int i = 0; i < snapshot.size; i++) {
+      View view = views.get(i);
+      int parent = parents.get(i);
+      snapshot.parents[i] = parent;
+      snapshot.subtreeEnds[i] = snapshot.size;
+      // every view between a view and its next sibling (or an ancestor's) is its descendant.
+      if (parent != -1) {
+        for (int ancestor = i - 1; ancestor != parent; ancestor = snapshot.parents[ancestor]) {
+          snapshot.subtreeEnds[ancestor] = i;
+        }
+      }
+      snapshot.ids[i] = view.getId();
+      snapshot.classes[i] = view.getClass();
+      if (view instanceof TextView) {
+        snapshot.texts[i] = ((TextView) view).getText().toString();
+      }
+      CharSequence contentDescription = view.getContentDescription();
+      if (contentDescription instanceof String) {
+        snapshot.contentDescriptions[i] = contentDescription;
+      } else if (null != contentDescription) {
+        // an immutable copy keeps the spans content description matchers may look at.
+        snapshot.contentDescriptions[i] = new SpannedString(contentDescription);
+      }
+      snapshot.visibilities[i] = HierarchyGeometry.combine(
+          parent == -1 ? HierarchyGeometry.ALL_VISIBLE : snapshot.visibilities[parent],
+          view.getVisibility());
+      snapshot.sizes[i * 2] = view.getWidth();
+      snapshot.sizes[i * 2 + 1] = view.getHeight();
+      int viewFlags = 0;
+      viewFlags |= view.isEnabled() ? ENABLED : 0;
+      viewFlags |= view.isFocusable() ? FOCUSABLE : 0;
+      viewFlags |= view.hasFocus() ? HAS_FOCUS : 0;
+      viewFlags |= view.isClickable() ? CLICKABLE : 0;
+      if (view instanceof Checkable) {
+        viewFlags |= CHECKABLE;
+        viewFlags |= ((Checkable) view).isChecked() ? CHECKED : 0;
+      }
+      // views that are not effectively visible are never displayed, skip the expensive part.
+      if (HierarchyGeometry.hasEffectiveVisibility(snapshot.visibilities[i], Visibility.VISIBLE)
+          && view.getGlobalVisibleRect(scratch)) {
+        viewFlags |= VISIBLE_AT_ALL;
+        snapshot.visibleBounds[i * 4] = scratch.left;
+        snapshot.visibleBounds[i * 4 + 1] = scratch.top;
+        snapshot.visibleBounds[i * 4 + 2] = scratch.right;
+        snapshot.visibleBounds[i * 4 + 3] = scratch.bottom;
+      }
+      if (i == 0 && view.getRootView() == view) {
+        viewFlags |= ROOT;
+      }
+      snapshot.flags[i] = viewFlags;
+    }
+    return snapshot;
+  }
+
+  /**
+   * Returns true if the given matcher can be evaluated against a snapshot.
+   */
+  public static boolean canMatch(Matcher<?> matcher) {
+    return matcher instanceof SnapshotMatcher && ((SnapshotMatcher) matcher).canMatchSnapshot();
+  }
+
+  /**
+   * Evaluates matcher against the view at index.
+   *
+   * @throws IllegalArgumentException if the matcher cannot be evaluated against a snapshot.
+   */
+  public boolean matches(Matcher<?> matcher, int index) {
+    checkArgument(canMatch(matcher), "Cannot be matched against a snapshot: %s", matcher);
+    return ((SnapshotMatcher) matcher).matchesSnapshot(this, index);
+  }
+
+  /**
+   * Returns the indices of all views matched by matcher, in ascending order.
+   *
+   * @throws IllegalArgumentException if the matcher cannot be evaluated against a snapshot.
+   */
+  public int[] indicesMatching(final Matcher<?> matcher) {
+    checkArgument(canMatch(matcher), "Cannot be matched against a snapshot: %s", matcher);
+    final SnapshotMatcher snapshotMatcher = (SnapshotMatcher) matcher;
+    return MatchingExecutor.indicesMatching(new MatchingExecutor.IndexPredicate() {
+      @Override
+      public boolean matches(int index) {
+        return snapshotMatcher.matchesSnapshot(HierarchySnapshot.this, index);
+      }
+    }, size);
+  }
+
+  /**
+   * Returns the number of views in the snapshot.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the index of the parent of the view at index, or -1 for the root of the snapshot.
+   */
+  public int getParentIndex(int index) {
+    return parents[index];
+  }
+
+  /**
+   * Returns the index just past the last descendant of the view at index.
+   */
+  public int getSubtreeEnd(int index) {
+    return subtreeEnds[index];
+  }
+
+  /**
+   * Returns true if the view at index was the root of its window.
+   */
+  public boolean isRoot(int index) {
+    return (flags[index] & ROOT) != 0;
+  }
+
+  public int getId(int index) {
+    return ids[index];
+  }
+
+  public Class<?> getViewClass(int index) {
+    return classes[index];
+  }
+
+  /**
+   * Returns the text of the view at index, or null if it is not a {@link TextView}.
+   */
+  public String getText(int index) {
+    return texts[index];
+  }
+
+  /**
+   * Returns the content description of the view at index, or null if it has none. Descriptions
+   * which are not Strings (e.g. Spanned ones) are returned as an immutable copy with the same
+   * spans.
+   */
+  public CharSequence getContentDescription(int index) {
+    return contentDescriptions[index];
+  }
+
+  public boolean isEnabled(int index) {
+    return (flags[index] & ENABLED) != 0;
+  }
+
+  public boolean isFocusable(int index) {
+    return (flags[index] & FOCUSABLE) != 0;
+  }
+
+  public boolean hasFocus(int index) {
+    return (flags[index] & HAS_FOCUS) != 0;
+  }
+
+  public boolean isClickable(int index) {
+    return (flags[index] & CLICKABLE) != 0;
+  }
+
+  public boolean isCheckable(int index) {
+    return (flags[index] & CHECKABLE) != 0;
+  }
+
+  public boolean isChecked(int index) {
+    return (flags[index] & CHECKED) != 0;
+  }
+
+  /**
+   * Same semantics as {@link ViewMatchers#withEffectiveVisibility}.
+   */
+  public boolean hasEffectiveVisibility(int index, Visibility visibility) {
+    return HierarchyGeometry.hasEffectiveVisibility(visibilities[index], visibility);
+  }
+
+  public int getWidth(int index) {
+    return sizes[index * 2];
+  }
+
+  public int getHeight(int index) {
+    return sizes[index * 2 + 1];
+  }
+
+  /**
+   * Returns the area of the view that was visible on screen, or -1 if no part of it was (see
+   * {@link View#getGlobalVisibleRect(Rect)}). Views that are not effectively visible are never
+   * considered to be on screen.
+   */
+  public double getVisibleArea(int index) {
+    if ((flags[index] & VISIBLE_AT_ALL) == 0) {
+      return -1;
+    }
+    double width = visibleBounds[index * 4 + 2] - visibleBounds[index * 4];
+    double height = visibleBounds[index * 4 + 3] - visibleBounds[index * 4 + 1];
+    return width * height;
+  }
+}
@@ -0,0 +1,116 @@
+package com.google.android.apps.common.testing.ui.espresso.matcher;
+
+import static com.google.common.base.Throwables.propagate;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Holds the worker threads matchers are evaluated on in parallel, and splits the matching of a
+ * range of items across them.
+ */
+final class MatchingExecutor {
+
+  // below this many items, handing work to other threads costs more than it saves.
+  private static final int PARALLEL_THRESHOLD = 4096;
+
+  private static ExecutorService executor;
+
+  private MatchingExecutor() {}
+
+  /**
+   * Decides whether the item at an index is matched. Must be safe to call from several threads.
+   */
+  interface IndexPredicate {
+    boolean matches(int index);
+  }
+
+  static int parallelism() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  static synchronized ExecutorService get() {
+    if (null == executor) {
+      executor = Executors.newFixedThreadPool(parallelism(), new ThreadFactoryBuilder()
+          .setNameFormat("Espresso Matcher #%d")
+          .setDaemon(true)
+          .build());
+    }
+    return executor;
+  }
+
+  /**
+   * Returns true if matching this many items is split across worker threads.
+   */
+  static boolean isParallel(int size) {
+    return size >= PARALLEL_THRESHOLD && parallelism() >= 2;
+  }
+
+  /**
+   * Returns the indices from 0 (inclusive) to size (exclusive) matched by the predicate, in
+   * ascending order. Large ranges are split in chunks matched in parallel on worker threads.
+   */
+  static int[] indicesMatching(final IndexPredicate predicate, int size) {
+    if (!isParallel(size)) {
+      return indicesMatching(predicate, 0, size);
+    }
+    int processors = parallelism();
+    int chunk = (size + processors - 1) / processors;
+    List<Future<int[]>> futures = Lists.newArrayList();
+    for (int start = 0; start < size; start += chunk) {
+      final int from = start;
+      final int to = Math.min(size, start + chunk);
+      futures.add(get().submit(new Callable<int[]>() {
+        @Override
+        public int[] call() {
+          return indicesMatching(predicate, from, to);
+        }
+      }));
+    }
+    // chunks are merged in order, so the result is ordered like the items.
+    int[][] results = new int[futures.size()][];
+    int total = 0;
+    try {
+      for (int i = 0; i < results.length; i++) {
+        results[i] = futures.get(i).get();
+        total += results[i].length;
+      }
+    } catch (InterruptedException ie) {
+      throw new RuntimeException("Interrupted while matching", ie);
+    } catch (ExecutionException ee) {
+      throw propagate(ee.getCause());
+    }
+    int[] matched = new int[total];
+    int offset = 0;
+    for (int[] result : results) {
+      System.arraycopy(result, 0, matched, offset, result.length);
+      offset += result.length;
+    }
+    return matched;
+  }
+
+  private static int[] indicesMatching(IndexPredicate predicate, int from, int to) {
+    int[] matched = new int[8];
+    int count = 0;
+    for (int i = from; i < to; i++) {
+      if (predicate.matches(i)) {
+        if (count == matched.length) {
+          int[] grown = new int[matched.length * 2];
+          System.arraycopy(matched, 0, grown, 0, count);
+          matched = grown;
+        }
+        matched[count++] = i;
+      }
+    }
+    int[] result = new int[count];
+    System.arraycopy(matched, 0, result, 0, count);
+    return result;
+  }
+}
@@ -2,6 +2,8 @@ package com.google.android.apps.common.testing.ui.espresso.matcher;
 
 import static org.hamcrest.Matchers.is;
 
+import com.google.android.apps.common.testing.ui.espresso.GraphHolder;
+
 import android.content.res.Resources;
 import android.preference.Preference;
 
@@ -39,11 +41,12 @@ public final class PreferenceMatchers {
       @Override
       public boolean matchesSafely(Preference preference) {
         if (null == expectedText) {
-          try {
-            expectedText = preference.getContext().getResources().getString(resourceId);
-            resourceName = preference.getContext().getResources().getResourceEntryName(resourceId);
-          } catch (Resources.NotFoundException ignored) {
-            /* view could be from a context unaware of the resource id. */
+          // null if the preference is from a context unaware of the resource id.
+          Resources resources = preference.getContext().getResources();
+          expectedText = GraphHolder.resourceResolver().getString(resources, resourceId);
+          if (null != expectedText) {
+            resourceName =
+                GraphHolder.resourceResolver().getResourceEntryName(resources, resourceId);
           }
         }
         if (null != expectedText) {
@@ -98,11 +101,12 @@ public final class PreferenceMatchers {
       @Override
       public boolean matchesSafely(Preference preference) {
         if (null == expectedText) {
-          try {
-            expectedText = preference.getContext().getResources().getString(resourceId);
-            resourceName = preference.getContext().getResources().getResourceEntryName(resourceId);
-          } catch (Resources.NotFoundException ignored) {
-            /* view could be from a context unaware of the resource id. */
+          // null if the preference is from a context unaware of the resource id.
+          Resources resources = preference.getContext().getResources();
+          expectedText = GraphHolder.resourceResolver().getString(resources, resourceId);
+          if (null != expectedText) {
+            resourceName =
+                GraphHolder.resourceResolver().getResourceEntryName(resources, resourceId);
           }
         }
         if (null != expectedText) {
@@ -0,0 +1,27 @@
+package com.google.android.apps.common.testing.ui.espresso.matcher;
+
+import android.view.View;
+
+/**
+ * A {@link BoundedMatcher} over views that can also be evaluated against a
+ * {@link HierarchySnapshot}.
+ *
+ * @param <S> the subtype of View the matcher applies safely to.
+ */
+abstract class SnapshotBoundedMatcher<S extends View> extends BoundedMatcher<View, S>
+    implements SnapshotMatcher {
+
+  SnapshotBoundedMatcher(Class<? extends S> expectedType) {
+    super(expectedType);
+  }
+
+  SnapshotBoundedMatcher(Class<?> expectedType, Class<?> interfaceType1,
+      Class<?>... otherInterfaces) {
+    super(expectedType, interfaceType1, otherInterfaces);
+  }
+
+  @Override
+  public boolean canMatchSnapshot() {
+    return true;
+  }
+}
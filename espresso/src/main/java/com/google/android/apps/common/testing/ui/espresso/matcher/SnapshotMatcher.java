@@ -0,0 +1,24 @@
+package com.google.android.apps.common.testing.ui.espresso.matcher;
+
+/**
+ * Implemented by view matchers that can also be evaluated against a {@link HierarchySnapshot}
+ * instead of a live view.
+ * <p>
+ * Evaluating against the snapshot must give the same answer the matcher would have given for the
+ * live view at the time the snapshot was captured. Implementations must be thread safe and must
+ * not touch any views.
+ * </p>
+ */
+public interface SnapshotMatcher {
+
+  /**
+   * Returns true if this matcher, and every matcher it delegates to, can be evaluated against a
+   * snapshot.
+   */
+  boolean canMatchSnapshot();
+
+  /**
+   * Evaluates this matcher against the view at the given index of the snapshot.
+   */
+  boolean matchesSnapshot(HierarchySnapshot snapshot, int index);
+}
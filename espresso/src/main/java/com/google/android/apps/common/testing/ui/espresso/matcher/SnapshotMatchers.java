@@ -0,0 +1,138 @@
+package com.google.android.apps.common.testing.ui.espresso.matcher;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableList;
+
+import android.view.View;
+
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+
+import java.util.List;
+
+/**
+ * Combinators for view matchers that keep them usable against a {@link HierarchySnapshot}.
+ * <p>
+ * They behave exactly like their hamcrest namesakes on live views, but also implement
+ * {@link SnapshotMatcher} whenever all of the combined matchers do.
+ * </p>
+ */
+public final class SnapshotMatchers {
+
+  private SnapshotMatchers() {}
+
+  /**
+   * Like {@link org.hamcrest.Matchers#allOf}: matches if every one of the matchers does.
+   */
+  public static Matcher<View> allOf(Matcher<View>... matchers) {
+    checkNotNull(matchers);
+    checkArgument(matchers.length > 0, "At least one matcher is required.");
+    final List<Matcher<View>> all = ImmutableList.copyOf(matchers);
+    return new CombiningMatcher(all) {
+      @Override
+      public void describeTo(Description description) {
+        description.appendList("(", " and ", ")", all);
+      }
+
+      @Override
+      public boolean matchesSafely(View view) {
+        for (Matcher<View> matcher : all) {
+          if (!matcher.matches(view)) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      @Override
+      public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+        for (Matcher<View> matcher : all) {
+          if (!snapshot.matches(matcher, index)) {
+            return false;
+          }
+        }
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Like {@link org.hamcrest.Matchers#anyOf}: matches if at least one of the matchers does.
+   */
+  public static Matcher<View> anyOf(Matcher<View>... matchers) {
+    checkNotNull(matchers);
+    checkArgument(matchers.length > 0, "At least one matcher is required.");
+    final List<Matcher<View>> any = ImmutableList.copyOf(matchers);
+    return new CombiningMatcher(any) {
+      @Override
+      public void describeTo(Description description) {
+        description.appendList("(", " or ", ")", any);
+      }
+
+      @Override
+      public boolean matchesSafely(View view) {
+        for (Matcher<View> matcher : any) {
+          if (matcher.matches(view)) {
+            return true;
+          }
+        }
+        return false;
+      }
+
+      @Override
+      public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+        for (Matcher<View> matcher : any) {
+          if (snapshot.matches(matcher, index)) {
+            return true;
+          }
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Like {@link org.hamcrest.Matchers#not}: matches if the given matcher does not.
+   */
+  @SuppressWarnings("unchecked")
+  public static Matcher<View> not(final Matcher<View> matcher) {
+    checkNotNull(matcher);
+    return new CombiningMatcher(ImmutableList.of(matcher)) {
+      @Override
+      public void describeTo(Description description) {
+        description.appendText("not ").appendDescriptionOf(matcher);
+      }
+
+      @Override
+      public boolean matchesSafely(View view) {
+        return !matcher.matches(view);
+      }
+
+      @Override
+      public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+        return !snapshot.matches(matcher, index);
+      }
+    };
+  }
+
+  private abstract static class CombiningMatcher extends SnapshotBoundedMatcher<View> {
+    private final List<Matcher<View>> matchers;
+
+    CombiningMatcher(List<Matcher<View>> matchers) {
+      super(View.class);
+      this.matchers = matchers;
+    }
+
+    @Override
+    public boolean canMatchSnapshot() {
+      for (Matcher<View> matcher : matchers) {
+        if (!HierarchySnapshot.canMatch(matcher)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
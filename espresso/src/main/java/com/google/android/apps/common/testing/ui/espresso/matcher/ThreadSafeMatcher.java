@@ -0,0 +1,13 @@
+package com.google.android.apps.common.testing.ui.espresso.matcher;
+
+/**
+ * Implemented by matchers that can be evaluated concurrently, from any thread.
+ * <p>
+ * Espresso evaluates such matchers on worker threads when it has many items to match, e.g. the
+ * data of a large adapter. Implementations must not touch any views and must only read state of
+ * the matched items that does not change while they are being matched (e.g. immutable model
+ * objects). Use {@link ThreadSafeMatchers#threadSafe} to declare an existing matcher thread safe.
+ * </p>
+ */
+public interface ThreadSafeMatcher {
+}
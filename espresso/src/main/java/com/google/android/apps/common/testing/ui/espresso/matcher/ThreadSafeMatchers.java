@@ -0,0 +1,77 @@
+package com.google.android.apps.common.testing.ui.espresso.matcher;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+
+import java.util.List;
+
+/**
+ * Declares matchers {@link ThreadSafeMatcher thread safe} and evaluates them in parallel.
+ */
+public final class ThreadSafeMatchers {
+
+  private ThreadSafeMatchers() {}
+
+  /**
+   * Returns a matcher that matches exactly like the given one and declares it thread safe. Only
+   * use this for matchers meeting the requirements of {@link ThreadSafeMatcher}.
+   */
+  public static <T> Matcher<T> threadSafe(final Matcher<T> matcher) {
+    checkNotNull(matcher);
+    return new ThreadSafeDelegate<T>(matcher);
+  }
+
+  /**
+   * Returns true if the matcher is declared thread safe.
+   */
+  public static boolean isThreadSafe(Matcher<?> matcher) {
+    return matcher instanceof ThreadSafeMatcher;
+  }
+
+  /**
+   * Returns true if matching this many items with {@link #indicesMatching} is split across worker
+   * threads. Below that, matching items one by one on the calling thread costs less.
+   */
+  public static boolean isMatchedInParallel(int itemCount) {
+    return MatchingExecutor.isParallel(itemCount);
+  }
+
+  /**
+   * Returns the indices of all items matched by the thread safe matcher, in ascending order. Large
+   * lists are split in chunks matched in parallel on worker threads.
+   *
+   * @throws IllegalArgumentException if the matcher is not declared thread safe.
+   */
+  public static int[] indicesMatching(final Matcher<?> matcher, final List<?> items) {
+    checkArgument(isThreadSafe(matcher), "Not declared thread safe: %s", matcher);
+    return MatchingExecutor.indicesMatching(new MatchingExecutor.IndexPredicate() {
+      @Override
+      public boolean matches(int index) {
+        return matcher.matches(items.get(index));
+      }
+    }, items.size());
+  }
+
+  private static final class ThreadSafeDelegate<T> extends BaseMatcher<T>
+      implements ThreadSafeMatcher {
+    private final Matcher<T> matcher;
+
+    private ThreadSafeDelegate(Matcher<T> matcher) {
+      this.matcher = matcher;
+    }
+
+    @Override
+    public boolean matches(Object item) {
+      return matcher.matches(item);
+    }
+
+    @Override
+    public void describeTo(Description description) {
+      matcher.describeTo(description);
+    }
+  }
+}
@@ -3,11 +3,17 @@ package com.google.android.apps.common.testing.ui.espresso.matcher;
 import static com.google.android.apps.common.testing.ui.espresso.util.TreeIterables.breadthFirstViewTraversal;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Throwables.propagate;
 import static org.hamcrest.Matchers.is;
 
+import com.google.android.apps.common.testing.ui.espresso.GraphHolder;
 import com.google.android.apps.common.testing.ui.espresso.util.HumanReadables;
 import com.google.common.base.Predicate;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import android.content.res.Resources;
 import android.graphics.Rect;
@@ -25,17 +31,69 @@ import org.hamcrest.Description;
 import org.hamcrest.Matcher;
 import org.hamcrest.Matchers;
 import org.hamcrest.StringDescription;
-import org.hamcrest.TypeSafeMatcher;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Nullable;
 
 /**
  * A collection of hamcrest matchers that match {@link View}s.
  */
 public final class ViewMatchers {
 
+  private static final int MAX_INTERNED_MATCHERS_PER_FACTORY = 1000;
+
+  private static volatile boolean interningEnabled = false;
+
+  private static final Cache<Integer, Matcher<View>> internedIdMatchers = newInternCache();
+  private static final Cache<String, Matcher<View>> internedTextMatchers = newInternCache();
+  private static final Cache<String, Matcher<View>> internedContentDescriptionMatchers =
+      newInternCache();
+  private static final Cache<Integer, Matcher<View>> internedDisplayingAtLeastMatchers =
+      newInternCache();
+
   private ViewMatchers() {}
 
+  /**
+   * Enables or disables interning of the matchers returned by {@link #withId(int)},
+   * {@link #withText(String)}, {@link #withContentDescription(String)} and
+   * {@link #isDisplayingAtLeast(int)}.
+   * <p>
+   * While enabled, calling one of these factories again with an argument it has recently been
+   * called with returns the same matcher instance instead of creating a new one. This is worthwhile
+   * for test suites that build the same matchers over and over again. Disabled by default; the
+   * matchers without arguments (e.g. {@link #isDisplayed()}) are always shared.
+   * </p>
+   */
+  public static void setInterningEnabled(boolean enabled) {
+    interningEnabled = enabled;
+    if (!enabled) {
+      internedIdMatchers.invalidateAll();
+      internedTextMatchers.invalidateAll();
+      internedContentDescriptionMatchers.invalidateAll();
+      internedDisplayingAtLeastMatchers.invalidateAll();
+    }
+  }
+
+  private static <K> Cache<K, Matcher<View>> newInternCache() {
+    return CacheBuilder.newBuilder()
+        .maximumSize(MAX_INTERNED_MATCHERS_PER_FACTORY)
+        .build();
+  }
+
+  private static <K> Matcher<View> intern(Cache<K, Matcher<View>> cache, K key,
+      Callable<Matcher<View>> factory) {
+    try {
+      return cache.get(key, factory);
+    } catch (ExecutionException ee) {
+      throw propagate(ee.getCause());
+    }
+  }
+
   /**
    * Returns a matcher that matches Views which are an instance of or subclass of the provided
    * class. Some versions of Hamcrest make the generic typing of this a nightmare, so we have a
@@ -43,7 +101,7 @@ public final class ViewMatchers {
    */
   public static Matcher<View> isAssignableFrom(final Class<? extends View> clazz) {
     checkNotNull(clazz);
-    return new TypeSafeMatcher<View>() {
+    return new SnapshotBoundedMatcher<View>(View.class) {
       @Override
       public void describeTo(Description description) {
         description.appendText("is assignable from class: " + clazz);
@@ -53,6 +111,11 @@ public final class ViewMatchers {
       public boolean matchesSafely(View view) {
         return clazz.isAssignableFrom(view.getClass());
       }
+
+      @Override
+      public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+        return clazz.isAssignableFrom(snapshot.getViewClass(index));
+      }
     };
   }
 
@@ -61,7 +124,7 @@ public final class ViewMatchers {
    */
   public static Matcher<View> withClassName(final Matcher<String> classNameMatcher) {
     checkNotNull(classNameMatcher);
-    return new TypeSafeMatcher<View>() {
+    return new SnapshotBoundedMatcher<View>(View.class) {
       @Override
       public void describeTo(Description description) {
         description.appendText("with class name: ");
@@ -72,6 +135,11 @@ public final class ViewMatchers {
       public boolean matchesSafely(View view) {
         return classNameMatcher.matches(view.getClass().getName());
       }
+
+      @Override
+      public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+        return classNameMatcher.matches(snapshot.getViewClass(index).getName());
+      }
     };
   }
 
@@ -84,20 +152,35 @@ public final class ViewMatchers {
    * entire rectangle this view draws is displayed to the user use isCompletelyDisplayed.
    */
   public static Matcher<View> isDisplayed() {
-    return new TypeSafeMatcher<View>() {
-      @Override
-      public void describeTo(Description description) {
-        description.appendText("is displayed on the screen to the user");
-      }
-
-      @Override
-      public boolean matchesSafely(View view) {
-        return view.getGlobalVisibleRect(new Rect()) &&
-            withEffectiveVisibility(Visibility.VISIBLE).matches(view);
-      }
-    };
+    return IS_DISPLAYED;
   }
 
+  private static final Matcher<View> IS_DISPLAYED =
+      new SnapshotBoundedMatcher<View>(View.class) {
+        @Override
+        public void describeTo(Description description) {
+          description.appendText("is displayed on the screen to the user");
+        }
+
+        @Override
+        public boolean matchesSafely(View view) {
+          HierarchyGeometry geometry = ViewQueryScope.geometryFor(view);
+          if (null != geometry) {
+            int index = geometry.indexOf(view);
+            return geometry.getVisibleArea(index) >= 0
+                && geometry.hasEffectiveVisibility(index, Visibility.VISIBLE);
+          }
+          return view.getGlobalVisibleRect(new Rect()) &&
+              withEffectiveVisibility(Visibility.VISIBLE).matches(view);
+        }
+
+        @Override
+        public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+          return snapshot.getVisibleArea(index) >= 0
+              && snapshot.hasEffectiveVisibility(index, Visibility.VISIBLE);
+        }
+      };
+
   /**
    * Returns a matcher which only accepts a view whose height and width fit perfectly within
    * the currently displayed region of this view.
@@ -106,9 +189,11 @@ public final class ViewMatchers {
    * device screen by design. Such views will _never_ be completely displayed.
    */
   public static Matcher<View> isCompletelyDisplayed() {
-    return isDisplayingAtLeast(100);
+    return IS_COMPLETELY_DISPLAYED;
   }
 
+  private static final Matcher<View> IS_COMPLETELY_DISPLAYED = createDisplayingAtLeast(100);
+
   /**
    * Returns a matcher which accepts a view so long as a given percentage of that view's area is
    * not obscured by any other view and is thus visible to the user.
@@ -119,7 +204,19 @@ public final class ViewMatchers {
   public static Matcher<View> isDisplayingAtLeast(final int areaPercentage) {
     checkState(areaPercentage <= 100, "Cannot have over 100 percent: %s", areaPercentage);
     checkState(areaPercentage > 0, "Must have a positive, non-zero value: %s", areaPercentage);
-    return new TypeSafeMatcher<View>() {
+    if (!interningEnabled) {
+      return createDisplayingAtLeast(areaPercentage);
+    }
+    return intern(internedDisplayingAtLeastMatchers, areaPercentage, new Callable<Matcher<View>>() {
+      @Override
+      public Matcher<View> call() {
+        return createDisplayingAtLeast(areaPercentage);
+      }
+    });
+  }
+
+  private static Matcher<View> createDisplayingAtLeast(final int areaPercentage) {
+    return new SnapshotBoundedMatcher<View>(View.class) {
       @Override
       public void describeTo(Description description) {
         description.appendText(String.format(
@@ -128,74 +225,126 @@ public final class ViewMatchers {
 
       @Override
       public boolean matchesSafely(View view) {
+        HierarchyGeometry geometry = ViewQueryScope.geometryFor(view);
+        if (null != geometry) {
+          int index = geometry.indexOf(view);
+          double visibleArea = geometry.getVisibleArea(index);
+          if (visibleArea < 0) {
+            return false;
+          }
+          int displayed = displayedPercentage(view.getWidth(), view.getHeight(), visibleArea);
+          return displayed >= areaPercentage
+              && geometry.hasEffectiveVisibility(index, Visibility.VISIBLE);
+        }
+
         Rect visibleParts = new Rect();
         boolean visibleAtAll = view.getGlobalVisibleRect(visibleParts);
         if (!visibleAtAll) {
           return false;
         }
-        double maxArea = view.getHeight() * view.getWidth();
         double visibleArea = visibleParts.height() * visibleParts.width();
-        int displayedPercentage = (int) ((visibleArea / maxArea) * 100);
 
-        return displayedPercentage >= areaPercentage
+        int displayed = displayedPercentage(view.getWidth(), view.getHeight(), visibleArea);
+        return displayed >= areaPercentage
             && withEffectiveVisibility(Visibility.VISIBLE).matches(view);
       }
+
+      @Override
+      public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+        double visibleArea = snapshot.getVisibleArea(index);
+        if (visibleArea < 0) {
+          return false;
+        }
+        int displayed =
+            displayedPercentage(snapshot.getWidth(index), snapshot.getHeight(index), visibleArea);
+        return displayed >= areaPercentage
+            && snapshot.hasEffectiveVisibility(index, Visibility.VISIBLE);
+      }
     };
   }
 
+  private static int displayedPercentage(int width, int height, double visibleArea) {
+    double maxArea = height * width;
+    return (int) ((visibleArea / maxArea) * 100);
+  }
+
 
 
   /**
    * Returns a matcher that matches {@link View}s that are enabled.
    */
   public static Matcher<View> isEnabled() {
-    return new TypeSafeMatcher<View>() {
-      @Override
-      public void describeTo(Description description) {
-        description.appendText("is enabled");
-      }
-
-      @Override
-      public boolean matchesSafely(View view) {
-        return view.isEnabled();
-      }
-    };
+    return IS_ENABLED;
   }
 
+  private static final Matcher<View> IS_ENABLED =
+      new SnapshotBoundedMatcher<View>(View.class) {
+        @Override
+        public void describeTo(Description description) {
+          description.appendText("is enabled");
+        }
+
+        @Override
+        public boolean matchesSafely(View view) {
+          return view.isEnabled();
+        }
+
+        @Override
+        public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+          return snapshot.isEnabled(index);
+        }
+      };
+
   /**
    * Returns a matcher that matches {@link View}s that are focusable.
    */
   public static Matcher<View> isFocusable() {
-    return new TypeSafeMatcher<View>() {
-      @Override
-      public void describeTo(Description description) {
-        description.appendText("is focusable");
-      }
-
-      @Override
-      public boolean matchesSafely(View view) {
-        return view.isFocusable();
-      }
-    };
+    return IS_FOCUSABLE;
   }
 
+  private static final Matcher<View> IS_FOCUSABLE =
+      new SnapshotBoundedMatcher<View>(View.class) {
+        @Override
+        public void describeTo(Description description) {
+          description.appendText("is focusable");
+        }
+
+        @Override
+        public boolean matchesSafely(View view) {
+          return view.isFocusable();
+        }
+
+        @Override
+        public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+          return snapshot.isFocusable(index);
+        }
+      };
+
   /**
    * Returns a matcher that matches {@link View}s currently have focus.
    */
   public static Matcher<View> hasFocus() {
-    return new TypeSafeMatcher<View>() {
-      @Override
-      public void describeTo(Description description) {
-        description.appendText("has focus on the screen to the user");
-      }
-
-      @Override
-      public boolean matchesSafely(View view) {
-        return view.hasFocus();
-      }
-    };
+    return HAS_FOCUS;
   }
 
+  private static final Matcher<View> HAS_FOCUS =
+      new SnapshotBoundedMatcher<View>(View.class) {
+        @Override
+        public void describeTo(Description description) {
+          description.appendText("has focus on the screen to the user");
+        }
+
+        @Override
+        public boolean matchesSafely(View view) {
+          return view.hasFocus();
+        }
+
+        @Override
+        public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+          return snapshot.hasFocus(index);
+        }
+      };
+
   /**
    * Returns an {@link Matcher} that matches {@link View}s based on their siblings.<br>
    * <br>
@@ -208,7 +357,7 @@ public final class ViewMatchers {
    */
   public static Matcher<View> hasSibling(final Matcher<View> siblingMatcher) {
     checkNotNull(siblingMatcher);
-    return new TypeSafeMatcher<View>() {
+    return new SnapshotBoundedMatcher<View>(View.class) {
       @Override
       public void describeTo(Description description) {
         description.appendText("has sibling: ");
@@ -221,9 +370,25 @@ public final class ViewMatchers {
         if (!(parent instanceof ViewGroup)) {
           return false;
         }
-        ViewGroup parentGroup = (ViewGroup) parent;
-        for (int i = 0; i < parentGroup.getChildCount(); i++) {
-          if (siblingMatcher.matches(parentGroup.getChildAt(i))) {
+        // siblings share the answer, so it is recorded against their parent.
+        return hasMatchingChild((ViewGroup) parent, siblingMatcher, ViewQueryScope.memoFor(this));
+      }
+
+      @Override
+      public boolean canMatchSnapshot() {
+        return HierarchySnapshot.canMatch(siblingMatcher);
+      }
+
+      @Override
+      public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+        int parent = snapshot.getParentIndex(index);
+        if (parent == -1) {
+          return false;
+        }
+        for (int child = parent + 1; child < snapshot.getSubtreeEnd(parent);
+            child = snapshot.getSubtreeEnd(child)) {
+          // like the live matcher, the view counts as its own sibling.
+          if (snapshot.matches(siblingMatcher, child)) {
             return true;
           }
         }
@@ -238,8 +403,16 @@ public final class ViewMatchers {
    *
    * @param text the text to match on.
    */
-  public static Matcher<View> withContentDescription(String text) {
-    return withContentDescription(is(text));
+  public static Matcher<View> withContentDescription(final String text) {
+    if (!interningEnabled || null == text) {
+      return withContentDescription(is(text));
+    }
+    return intern(internedContentDescriptionMatchers, text, new Callable<Matcher<View>>() {
+      @Override
+      public Matcher<View> call() {
+        return withContentDescription(is(text));
+      }
+    });
   }
 
   /**
@@ -251,7 +424,7 @@ public final class ViewMatchers {
   public static Matcher<View> withContentDescription(
       final Matcher<? extends CharSequence> charSequenceMatcher) {
     checkNotNull(charSequenceMatcher);
-    return new TypeSafeMatcher<View>() {
+    return new SnapshotBoundedMatcher<View>(View.class) {
       @Override
       public void describeTo(Description description) {
         description.appendText("with content description: ");
@@ -262,6 +435,11 @@ public final class ViewMatchers {
       public boolean matchesSafely(View view) {
         return charSequenceMatcher.matches(view.getContentDescription());
       }
+
+      @Override
+      public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+        return charSequenceMatcher.matches(snapshot.getContentDescription(index));
+      }
     };
   }
 
@@ -270,8 +448,16 @@ public final class ViewMatchers {
    *
    * @param id the resource id.
    */
-  public static Matcher<View> withId(int id) {
-    return withId(is(id));
+  public static Matcher<View> withId(final int id) {
+    if (!interningEnabled) {
+      return withId(is(id));
+    }
+    return intern(internedIdMatchers, id, new Callable<Matcher<View>>() {
+      @Override
+      public Matcher<View> call() {
+        return withId(is(id));
+      }
+    });
   }
 
   /**
@@ -283,7 +469,7 @@ public final class ViewMatchers {
    */
   public static Matcher<View> withId(final Matcher<Integer> integerMatcher) {
     checkNotNull(integerMatcher);
-    return new TypeSafeMatcher<View>() {
+    return new SnapshotBoundedMatcher<View>(View.class) {
       @Override
       public void describeTo(Description description) {
         description.appendText("with id: ");
@@ -294,6 +480,11 @@ public final class ViewMatchers {
       public boolean matchesSafely(View view) {
         return integerMatcher.matches(view.getId());
       }
+
+      @Override
+      public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+        return integerMatcher.matches(snapshot.getId(index));
+      }
     };
   }
 
@@ -314,7 +505,7 @@ public final class ViewMatchers {
    */
   public static Matcher<View> withTagKey(final int key, final Matcher<Object> objectMatcher) {
     checkNotNull(objectMatcher);
-    return new TypeSafeMatcher<View>() {
+    return new BoundedMatcher<View, View>(View.class) {
       @Override
       public void describeTo(Description description) {
         description.appendText("with key: " + key);
@@ -335,7 +526,7 @@ public final class ViewMatchers {
    */
   public static Matcher<View> withTagValue(final Matcher<Object> tagValueMatcher) {
     checkNotNull(tagValueMatcher);
-    return new TypeSafeMatcher<View>() {
+    return new BoundedMatcher<View, View>(View.class) {
       @Override
       public void describeTo(Description description) {
         description.appendText("with tag value: ");
@@ -353,8 +544,16 @@ public final class ViewMatchers {
    * Returns a matcher that matches {@link TextView} based on it's text property value. Note: View's
    * Sugar for withText(is("string")).
    */
-  public static Matcher<View> withText(String text) {
-    return withText(is(text));
+  public static Matcher<View> withText(final String text) {
+    if (!interningEnabled || null == text) {
+      return withText(is(text));
+    }
+    return intern(internedTextMatchers, text, new Callable<Matcher<View>>() {
+      @Override
+      public Matcher<View> call() {
+        return withText(is(text));
+      }
+    });
   }
 
   /**
@@ -365,7 +564,7 @@ public final class ViewMatchers {
    */
   public static Matcher<View> withText(final Matcher<String> stringMatcher) {
     checkNotNull(stringMatcher);
-    return new BoundedMatcher<View, TextView>(TextView.class) {
+    return new SnapshotBoundedMatcher<TextView>(TextView.class) {
       @Override
       public void describeTo(Description description) {
         description.appendText("with text: ");
@@ -376,6 +575,12 @@ public final class ViewMatchers {
       public boolean matchesSafely(TextView textView) {
         return stringMatcher.matches(textView.getText().toString());
       }
+
+      @Override
+      public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+        String text = snapshot.getText(index);
+        return null != text && stringMatcher.matches(text);
+      }
     };
   }
 
@@ -409,11 +614,12 @@ public final class ViewMatchers {
       @Override
       public boolean matchesSafely(TextView textView) {
         if (null == expectedText) {
-          try {
-            expectedText = textView.getResources().getString(resourceId);
-            resourceName = textView.getResources().getResourceEntryName(resourceId);
-          } catch (Resources.NotFoundException ignored) {
-            /* view could be from a context unaware of the resource id. */
+          // null if the view is from a context unaware of the resource id.
+          Resources resources = textView.getResources();
+          expectedText = GraphHolder.resourceResolver().getString(resources, resourceId);
+          if (null != expectedText) {
+            resourceName =
+                GraphHolder.resourceResolver().getResourceEntryName(resources, resourceId);
           }
         }
         if (null != expectedText) {
@@ -430,21 +636,25 @@ public final class ViewMatchers {
    * is in checked state.
    */
   public static Matcher<View> isChecked() {
-    return withCheckBoxState(is(true));
+    return IS_CHECKED;
   }
 
+  private static final Matcher<View> IS_CHECKED = withCheckBoxState(is(true));
+
   /**
    * Returns a matcher that accepts if and only if the view is a CompoundButton (or subtype of) and
    * is not in checked state.
    */
   public static Matcher<View> isNotChecked() {
-    return withCheckBoxState(is(false));
+    return IS_NOT_CHECKED;
   }
 
+  private static final Matcher<View> IS_NOT_CHECKED = withCheckBoxState(is(false));
+
   private static <E extends View & Checkable> Matcher<View> withCheckBoxState(
       final Matcher<Boolean> checkStateMatcher) {
 
-    return new BoundedMatcher<View, E>(View.class, Checkable.class) {
+    return new SnapshotBoundedMatcher<E>(View.class, Checkable.class) {
       @Override
       public void describeTo(Description description) {
         description.appendText("with checkbox state: ");
@@ -455,6 +665,11 @@ public final class ViewMatchers {
       public boolean matchesSafely(E checkable) {
         return checkStateMatcher.matches(checkable.isChecked());
       }
+
+      @Override
+      public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+        return snapshot.isCheckable(index) && checkStateMatcher.matches(snapshot.isChecked(index));
+      }
     };
   }
 
@@ -462,19 +677,27 @@ public final class ViewMatchers {
    * Returns an {@link Matcher} that matches {@link View}s with any content description.
    */
   public static Matcher<View> hasContentDescription() {
-    return new TypeSafeMatcher<View>() {
-      @Override
-      public void describeTo(Description description) {
-        description.appendText("has content description");
-      }
-
-      @Override
-      public boolean matchesSafely(View view) {
-        return view.getContentDescription() != null;
-      }
-    };
+    return HAS_CONTENT_DESCRIPTION;
   }
 
+  private static final Matcher<View> HAS_CONTENT_DESCRIPTION =
+      new SnapshotBoundedMatcher<View>(View.class) {
+        @Override
+        public void describeTo(Description description) {
+          description.appendText("has content description");
+        }
+
+        @Override
+        public boolean matchesSafely(View view) {
+          return view.getContentDescription() != null;
+        }
+
+        @Override
+        public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+          return snapshot.getContentDescription(index) != null;
+        }
+      };
+
   /**
    * Returns a matcher that matches {@link View}s based on the presence of a descendant in its view
    * hierarchy.
@@ -483,7 +706,7 @@ public final class ViewMatchers {
    */
   public static Matcher<View> hasDescendant(final Matcher<View> descendantMatcher) {
     checkNotNull(descendantMatcher);
-    return new TypeSafeMatcher<View>() {
+    return new SnapshotBoundedMatcher<View>(View.class) {
       @Override
       public void describeTo(Description description) {
         description.appendText("has descendant: ");
@@ -492,6 +715,11 @@ public final class ViewMatchers {
 
       @Override
       public boolean matchesSafely(final View view) {
+        Map<View, Boolean> memo = ViewQueryScope.memoFor(this);
+        if (null != memo) {
+          return hasMatchingDescendant(view, descendantMatcher, memo);
+        }
+
         final Predicate<View> matcherPredicate = new Predicate<View>() {
           @Override
           public boolean apply(View input) {
@@ -504,26 +732,92 @@ public final class ViewMatchers {
 
         return matchedViewIterator.hasNext();
       }
-    };
-  }
 
-  /**
-   * Returns a matcher that matches {@link View}s that are clickable.
-   */
-  public static Matcher<View> isClickable() {
-    return new TypeSafeMatcher<View>() {
       @Override
-      public void describeTo(Description description) {
-        description.appendText("is clickable");
+      public boolean canMatchSnapshot() {
+        return HierarchySnapshot.canMatch(descendantMatcher);
       }
 
       @Override
-      public boolean matchesSafely(View view) {
-        return view.isClickable();
+      public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+        for (int i = index + 1; i < snapshot.getSubtreeEnd(index); i++) {
+          if (snapshot.matches(descendantMatcher, i)) {
+            return true;
+          }
+        }
+        return false;
       }
     };
   }
 
+  /**
+   * Determines whether any strict descendant of view matches, recording the answer for every view
+   * of the subtree. The subtree is resolved in post-order, so each view's answer is derived from
+   * its children's and the descendant matcher runs at most once per view.
+   */
+  private static boolean hasMatchingDescendant(View view, Matcher<View> descendantMatcher,
+      Map<View, Boolean> memo) {
+    Boolean known = memo.get(view);
+    if (null != known) {
+      return known;
+    }
+
+    List<View> unresolved = Lists.newArrayList();
+    unresolved.add(view);
+    while (!unresolved.isEmpty()) {
+      View current = unresolved.get(unresolved.size() - 1);
+      boolean childrenResolved = true;
+      if (current instanceof ViewGroup) {
+        ViewGroup group = (ViewGroup) current;
+        for (int i = 0; i < group.getChildCount(); i++) {
+          View child = group.getChildAt(i);
+          if (!memo.containsKey(child)) {
+            unresolved.add(child);
+            childrenResolved = false;
+          }
+        }
+      }
+      if (childrenResolved) {
+        unresolved.remove(unresolved.size() - 1);
+        boolean found = false;
+        if (current instanceof ViewGroup) {
+          ViewGroup group = (ViewGroup) current;
+          for (int i = 0; i < group.getChildCount() && !found; i++) {
+            View child = group.getChildAt(i);
+            found = memo.get(child) || descendantMatcher.matches(child);
+          }
+        }
+        memo.put(current, found);
+      }
+    }
+    return memo.get(view);
+  }
+
+  /**
+   * Returns a matcher that matches {@link View}s that are clickable.
+   */
+  public static Matcher<View> isClickable() {
+    return IS_CLICKABLE;
+  }
+
+  private static final Matcher<View> IS_CLICKABLE =
+      new SnapshotBoundedMatcher<View>(View.class) {
+        @Override
+        public void describeTo(Description description) {
+          description.appendText("is clickable");
+        }
+
+        @Override
+        public boolean matchesSafely(View view) {
+          return view.isClickable();
+        }
+
+        @Override
+        public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+          return snapshot.isClickable(index);
+        }
+      };
+
   /**
    * Returns a matcher that matches {@link View}s based on the given ancestor type.
    *
@@ -531,7 +825,7 @@ public final class ViewMatchers {
    */
   public static Matcher<View> isDescendantOfA(final Matcher<View> ancestorMatcher) {
     checkNotNull(ancestorMatcher);
-    return new TypeSafeMatcher<View>() {
+    return new SnapshotBoundedMatcher<View>(View.class) {
       @Override
       public void describeTo(Description description) {
         description.appendText("is descendant of a: ");
@@ -540,9 +834,43 @@ public final class ViewMatchers {
 
       @Override
       public boolean matchesSafely(View view) {
+        Map<View, Boolean> memo = ViewQueryScope.memoFor(this);
+        if (null != memo) {
+          return checkAncestors(view.getParent(), ancestorMatcher, memo);
+        }
         return checkAncestors(view.getParent(), ancestorMatcher);
       }
 
+      /**
+       * Walks up from viewParent until an ancestor matches, or until it reaches an ancestor whose
+       * answer is already known. Every ancestor passed on the way shares that answer, so siblings
+       * and cousins evaluated later in the same query stop at their first common ancestor.
+       */
+      private boolean checkAncestors(ViewParent viewParent, Matcher<View> ancestorMatcher,
+          Map<View, Boolean> memo) {
+        List<View> unmatchedAncestors = Lists.newArrayList();
+        boolean found = false;
+        while (viewParent instanceof View) {
+          View ancestor = (View) viewParent;
+          Boolean known = memo.get(ancestor);
+          if (null != known) {
+            found = known;
+            break;
+          }
+          if (ancestorMatcher.matches(ancestor)) {
+            memo.put(ancestor, true);
+            found = true;
+            break;
+          }
+          unmatchedAncestors.add(ancestor);
+          viewParent = ancestor.getParent();
+        }
+        for (View ancestor : unmatchedAncestors) {
+          memo.put(ancestor, found);
+        }
+        return found;
+      }
+
       private boolean checkAncestors(
         ViewParent viewParent, Matcher<View> ancestorMatcher) {
         if (!(viewParent instanceof View)) {
@@ -553,6 +881,22 @@ public final class ViewMatchers {
         }
         return checkAncestors(viewParent.getParent(), ancestorMatcher);
       }
+
+      @Override
+      public boolean canMatchSnapshot() {
+        return HierarchySnapshot.canMatch(ancestorMatcher);
+      }
+
+      @Override
+      public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+        for (int ancestor = snapshot.getParentIndex(index); ancestor != -1;
+            ancestor = snapshot.getParentIndex(ancestor)) {
+          if (snapshot.matches(ancestorMatcher, ancestor)) {
+            return true;
+          }
+        }
+        return false;
+      }
     };
   }
 
@@ -571,8 +915,21 @@ public final class ViewMatchers {
    * order to be actually visible to the user. Unless you're specifically targeting the visibility
    * value with your test, use isDisplayed.
    */
-  public static Matcher<View> withEffectiveVisibility(final Visibility visibility) {
-    return new TypeSafeMatcher<View>() {
+  public static Matcher<View> withEffectiveVisibility(Visibility visibility) {
+    return EFFECTIVE_VISIBILITY_MATCHERS.get(checkNotNull(visibility));
+  }
+
+  private static final Map<Visibility, Matcher<View>> EFFECTIVE_VISIBILITY_MATCHERS =
+      Maps.newEnumMap(Visibility.class);
+
+  static {
+    for (Visibility visibility : Visibility.values()) {
+      EFFECTIVE_VISIBILITY_MATCHERS.put(visibility, createEffectiveVisibility(visibility));
+    }
+  }
+
+  private static Matcher<View> createEffectiveVisibility(final Visibility visibility) {
+    return new SnapshotBoundedMatcher<View>(View.class) {
       @Override
       public void describeTo(Description description) {
         description.appendText(
@@ -581,6 +938,10 @@ public final class ViewMatchers {
 
       @Override
       public boolean matchesSafely(View view) {
+        HierarchyGeometry geometry = ViewQueryScope.geometryFor(view);
+        if (null != geometry) {
+          return geometry.hasEffectiveVisibility(geometry.indexOf(view), visibility);
+        }
         if (visibility.getValue() == View.VISIBLE) {
           if (view.getVisibility() != visibility.getValue()) {
             return false;
@@ -605,6 +966,11 @@ public final class ViewMatchers {
           return false;
         }
       }
+
+      @Override
+      public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+        return snapshot.hasEffectiveVisibility(index, visibility);
+      }
     };
   }
 
@@ -633,7 +999,7 @@ public final class ViewMatchers {
    */
   public static Matcher<View> withParent(final Matcher<View> parentMatcher) {
     checkNotNull(parentMatcher);
-    return new TypeSafeMatcher<View>() {
+    return new SnapshotBoundedMatcher<View>(View.class) {
       @Override
       public void describeTo(Description description) {
         description.appendText("has parent matching: ");
@@ -644,6 +1010,17 @@ public final class ViewMatchers {
       public boolean matchesSafely(View view) {
         return parentMatcher.matches(view.getParent());
       }
+
+      @Override
+      public boolean canMatchSnapshot() {
+        return HierarchySnapshot.canMatch(parentMatcher);
+      }
+
+      @Override
+      public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+        int parent = snapshot.getParentIndex(index);
+        return parent != -1 && snapshot.matches(parentMatcher, parent);
+      }
     };
   }
 
@@ -655,7 +1032,7 @@ public final class ViewMatchers {
    */
   public static Matcher<View> withChild(final Matcher<View> childMatcher) {
     checkNotNull(childMatcher);
-    return new TypeSafeMatcher<View>() {
+    return new SnapshotBoundedMatcher<View>(View.class) {
       @Override
       public void describeTo(Description description) {
         description.appendText("has child: ");
@@ -667,57 +1044,97 @@ public final class ViewMatchers {
         if (!(view instanceof ViewGroup)) {
           return false;
         }
+        return hasMatchingChild((ViewGroup) view, childMatcher, ViewQueryScope.memoFor(this));
+      }
 
-        ViewGroup group = (ViewGroup) view;
-        for (int i = 0; i < group.getChildCount(); i++) {
-          if (childMatcher.matches(group.getChildAt(i))) {
+      @Override
+      public boolean canMatchSnapshot() {
+        return HierarchySnapshot.canMatch(childMatcher);
+      }
+
+      @Override
+      public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+        for (int child = index + 1; child < snapshot.getSubtreeEnd(index);
+            child = snapshot.getSubtreeEnd(child)) {
+          if (snapshot.matches(childMatcher, child)) {
             return true;
           }
         }
-
         return false;
       }
     };
   }
 
+  private static boolean hasMatchingChild(ViewGroup group, Matcher<View> childMatcher,
+      @Nullable Map<View, Boolean> memo) {
+    if (null != memo) {
+      Boolean known = memo.get(group);
+      if (null != known) {
+        return known;
+      }
+    }
+    boolean found = false;
+    for (int i = 0; i < group.getChildCount(); i++) {
+      if (childMatcher.matches(group.getChildAt(i))) {
+        found = true;
+        break;
+      }
+    }
+    if (null != memo) {
+      memo.put(group, found);
+    }
+    return found;
+  }
+
 
   /**
    * Returns a matcher that matches root {@link View}.
    */
   public static Matcher<View> isRoot() {
-    return new TypeSafeMatcher<View>() {
-      @Override
-      public void describeTo(Description description) {
-        description.appendText("is a root view.");
-      }
-
-      @Override
-      public boolean matchesSafely(View view) {
-        return view.getRootView().equals(view);
-      }
-    };
+    return IS_ROOT;
   }
 
+  private static final Matcher<View> IS_ROOT =
+      new SnapshotBoundedMatcher<View>(View.class) {
+        @Override
+        public void describeTo(Description description) {
+          description.appendText("is a root view.");
+        }
+
+        @Override
+        public boolean matchesSafely(View view) {
+          return view.getRootView().equals(view);
+        }
+
+        @Override
+        public boolean matchesSnapshot(HierarchySnapshot snapshot, int index) {
+          return snapshot.isRoot(index);
+        }
+      };
+
   /**
    * Returns a matcher that matches views that support input methods.
    */
   public static Matcher<View> supportsInputMethods() {
-    return new TypeSafeMatcher<View>() {
-      @Override
-      public void describeTo(Description description) {
-        description.appendText("supports input methods");
-      }
-
-      @Override
-      public boolean matchesSafely(View view) {
-        // At first glance, it would make sense to use view.onCheckIsTextEditor, but the android
-        // javadoc is wishy-washy about whether authors are required to implement this method when
-        // implementing onCreateInputConnection.
-        return view.onCreateInputConnection(new EditorInfo()) != null;
-      }
-    };
+    return SUPPORTS_INPUT_METHODS;
   }
 
+  private static final Matcher<View> SUPPORTS_INPUT_METHODS =
+      new BoundedMatcher<View, View>(View.class) {
+        @Override
+        public void describeTo(Description description) {
+          description.appendText("supports input methods");
+        }
+
+        @Override
+        public boolean matchesSafely(View view) {
+          // At first glance, it would make sense to use view.onCheckIsTextEditor, but the android
+          // javadoc is wishy-washy about whether authors are required to implement this method when
+          // implementing onCreateInputConnection.
+          return view.onCreateInputConnection(new EditorInfo()) != null;
+        }
+      };
+
   /**
    * Returns a matcher that matches views that support input methods (e.g. EditText) and have the
    * specified IME action set in its {@link EditorInfo}.
@@ -735,7 +1152,7 @@ public final class ViewMatchers {
    * @param imeActionMatcher a matcher for the IME action
    */
   public static Matcher<View> hasImeAction(final Matcher<Integer> imeActionMatcher) {
-    return new TypeSafeMatcher<View>() {
+    return new BoundedMatcher<View, View>(View.class) {
       @Override
       public void describeTo(Description description) {
         description.appendText("has ime action: ");
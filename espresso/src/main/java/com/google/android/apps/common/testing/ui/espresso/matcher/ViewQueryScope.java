@@ -0,0 +1,147 @@
+package com.google.android.apps.common.testing.ui.espresso.matcher;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import android.view.View;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Memoizes intermediate matcher results for the duration of a single query over the view
+ * hierarchy.
+ * <p>
+ * Structural matchers (hasDescendant, withChild, hasSibling, isDescendantOfA) answer questions
+ * about the views around the one being matched. When such a matcher is applied to every view in a
+ * hierarchy - as the ViewFinder does - the same sub-questions are asked over and over again, which
+ * is quadratic on deep trees. While a scope is open on the current thread, these matchers record
+ * their per-view answers here so each one is computed at most once per query.
+ * </p>
+ * <p>
+ * The display matchers (isDisplayed, isDisplayingAtLeast, withEffectiveVisibility) share a
+ * {@link HierarchyGeometry} in the same way, so effective visibility and visible bounds are
+ * computed once per view rather than once per matcher evaluation.
+ * </p>
+ * <p>
+ * A scope must only be open while the hierarchy is not being mutated: i.e. on the main thread,
+ * while only matchers and assertions are being run. Everything memoized is discarded whenever the
+ * main thread processes a message (see {@link #invalidate}), so a scope never outlives the idle
+ * epoch it was filled in. Scopes nest; results are dropped once the outermost scope ends.
+ * </p>
+ * <pre>
+ * {@code
+ *   ViewQueryScope scope = ViewQueryScope.begin();
+ *   try {
+ *     // match views...
+ *   } finally {
+ *     scope.end();
+ *   }
+ * }
+ * </pre>
+ */
+public final class ViewQueryScope {
+
+  private static final ThreadLocal<ViewQueryScope> currentScope =
+      new ThreadLocal<ViewQueryScope>();
+
+  private final Map<Object, Map<View, Boolean>> memos = Maps.newIdentityHashMap();
+  private final List<HierarchyGeometry> geometries = Lists.newArrayList();
+  private int depth = 1;
+
+  private ViewQueryScope() {}
+
+  /**
+   * Opens a scope on the current thread, or joins the one that is already open.
+   */
+  public static ViewQueryScope begin() {
+    ViewQueryScope scope = currentScope.get();
+    if (null == scope) {
+      scope = new ViewQueryScope();
+      currentScope.set(scope);
+    } else {
+      scope.depth++;
+    }
+    return scope;
+  }
+
+  /**
+   * Ends this scope. Memoized results are discarded when the outermost scope ends.
+   */
+  public void end() {
+    checkState(currentScope.get() == this, "Scope ended on a different thread or ended twice.");
+    depth--;
+    if (depth == 0) {
+      clear();
+      currentScope.remove();
+    }
+  }
+
+  /**
+   * Discards everything memoized by the scope open on the current thread (if any).
+   * <p>
+   * Must be called whenever the main thread processes messages while a scope may be open: any
+   * message can lay out, scroll or otherwise mutate the hierarchy.
+   * </p>
+   */
+  public static void invalidate() {
+    ViewQueryScope scope = currentScope.get();
+    if (null != scope) {
+      scope.clear();
+    }
+  }
+
+  private void clear() {
+    memos.clear();
+    geometries.clear();
+  }
+
+  /**
+   * Returns true if a scope is open on the current thread.
+   */
+  public static boolean isActive() {
+    return null != currentScope.get();
+  }
+
+  /**
+   * Returns the per-view results recorded by the given owner (usually a matcher instance) in the
+   * current scope, or null if no scope is open on this thread.
+   */
+  @Nullable
+  static Map<View, Boolean> memoFor(Object owner) {
+    ViewQueryScope scope = currentScope.get();
+    if (null == scope) {
+      return null;
+    }
+    Map<View, Boolean> memo = scope.memos.get(owner);
+    if (null == memo) {
+      memo = Maps.newIdentityHashMap();
+      scope.memos.put(owner, memo);
+    }
+    return memo;
+  }
+
+  /**
+   * Returns the geometry of the hierarchy containing view, capturing it on first use, or null if
+   * no scope is open on this thread.
+   */
+  @Nullable
+  static HierarchyGeometry geometryFor(View view) {
+    ViewQueryScope scope = currentScope.get();
+    if (null == scope) {
+      return null;
+    }
+    for (HierarchyGeometry geometry : scope.geometries) {
+      if (geometry.indexOf(view) != -1) {
+        return geometry;
+      }
+    }
+    HierarchyGeometry geometry = HierarchyGeometry.capture(view.getRootView());
+    scope.geometries.add(geometry);
+    return geometry;
+  }
+}
@@ -2,6 +2,7 @@ package com.google.android.apps.common.testing.ui.espresso.util;
 
 import static com.google.android.apps.common.testing.ui.espresso.util.TreeIterables.depthFirstViewTraversalWithDistance;
 
+import com.google.android.apps.common.testing.ui.espresso.GraphHolder;
 import com.google.android.apps.common.testing.ui.espresso.util.TreeIterables.ViewAndDistance;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
@@ -12,7 +13,6 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.Iterables;
 
-import android.content.res.Resources;
 import android.os.Build;
 import android.util.Printer;
 import android.util.StringBuilderPrinter;
@@ -88,10 +88,10 @@ public final class HumanReadables {
     }
     ToStringHelper helper = Objects.toStringHelper(v).add("id", v.getId());
     if (v.getId() != -1 && v.getResources() != null) {
-      try {
-        helper.add("res-name", v.getResources().getResourceEntryName(v.getId()));
-      } catch (Resources.NotFoundException ignore) {
-        // Do nothing.
+      String resourceName =
+          GraphHolder.resourceResolver().getResourceEntryName(v.getResources(), v.getId());
+      if (null != resourceName) {
+        helper.add("res-name", resourceName);
       }
     }
     if (null != v.getContentDescription()) {
@@ -0,0 +1,132 @@
+package com.google.android.apps.common.testing.ui.espresso.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import android.content.res.Configuration;
+import android.content.res.Resources;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Nullable;
+
+/**
+ * Resolves resource ids to strings and entry names, remembering the answers for the whole test
+ * run.
+ * <p>
+ * Matchers and failure messages look up the same handful of resource ids over and over again
+ * (HumanReadables alone asks for the entry name of every view with an id). Lookups are cached per
+ * {@link Resources} instance (held weakly) and id; resolved strings are also keyed by the
+ * {@link Configuration} they were resolved under and are forgotten when it changes. Ids that do
+ * not exist are remembered too. Each Resources instance keeps at most
+ * {@value #MAX_ENTRIES_PER_RESOURCES} ids of each kind, least recently used ones are evicted first.
+ * </p>
+ * <p>
+ * A singleton of the Espresso graph, provided by BaseLayerModule. Its users are static matcher
+ * factories and HumanReadables, which reach it through
+ * {@link com.google.android.apps.common.testing.ui.espresso.GraphHolder#resourceResolver}.
+ * </p>
+ */
+public final class ResourceResolver {
+
+  private static final int MAX_ENTRIES_PER_RESOURCES = 1000;
+
+  // weakKeys compares keys by identity, which is what we want for Resources.
+  private final Cache<Resources, ResolvedResources> resolved =
+      CacheBuilder.newBuilder().weakKeys().build();
+
+  public ResourceResolver() {}
+
+  /**
+   * Returns resources.getString(id), or null if resources does not know about the id.
+   */
+  @Nullable
+  public String getString(final Resources resources, final int id) {
+    checkNotNull(resources);
+    return lookup(resolvedFor(resources).stringsFor(resources), id,
+        new Callable<Optional<String>>() {
+          @Override
+          public Optional<String> call() {
+            try {
+              return Optional.of(resources.getString(id));
+            } catch (Resources.NotFoundException nfe) {
+              return Optional.absent();
+            }
+          }
+        });
+  }
+
+  /**
+   * Returns resources.getResourceEntryName(id), or null if resources does not know about the id.
+   */
+  @Nullable
+  public String getResourceEntryName(final Resources resources, final int id) {
+    checkNotNull(resources);
+    return lookup(resolvedFor(resources).entryNames, id,
+        new Callable<Optional<String>>() {
+          @Override
+          public Optional<String> call() {
+            try {
+              return Optional.of(resources.getResourceEntryName(id));
+            } catch (Resources.NotFoundException nfe) {
+              return Optional.absent();
+            }
+          }
+        });
+  }
+
+  private ResolvedResources resolvedFor(Resources resources) {
+    try {
+      return resolved.get(resources, new Callable<ResolvedResources>() {
+        @Override
+        public ResolvedResources call() {
+          return new ResolvedResources();
+        }
+      });
+    } catch (ExecutionException ee) {
+      throw propagate(ee.getCause());
+    }
+  }
+
+  @Nullable
+  private static String lookup(Cache<Integer, Optional<String>> cache, int id,
+      Callable<Optional<String>> loader) {
+    try {
+      return cache.get(id, loader).orNull();
+    } catch (ExecutionException ee) {
+      throw propagate(ee.getCause());
+    }
+  }
+
+  private static Cache<Integer, Optional<String>> newLruCache() {
+    return CacheBuilder.newBuilder()
+        .maximumSize(MAX_ENTRIES_PER_RESOURCES)
+        .build();
+  }
+
+  /**
+   * Everything resolved against one Resources instance. Must not refer to that instance, otherwise
+   * it would never be collected.
+   */
+  private static final class ResolvedResources {
+    // entry names do not depend on the configuration.
+    private final Cache<Integer, Optional<String>> entryNames = newLruCache();
+    private final Cache<Integer, Optional<String>> strings = newLruCache();
+    // guarded by this.
+    private Configuration configuration;
+
+    synchronized Cache<Integer, Optional<String>> stringsFor(Resources resources) {
+      Configuration current = resources.getConfiguration();
+      if (!current.equals(configuration)) {
+        strings.invalidateAll();
+        configuration = new Configuration(current);
+      }
+      return strings;
+    }
+  }
+}